@@ -0,0 +1,149 @@
+package org.reactome.nursa.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.reactome.nursa.dao.NursaFileCache;
+import org.reactome.nursa.geneset.GeneSetIndex;
+import org.reactome.nursa.metrics.MetricsRegistry;
+import org.reactome.nursa.model.DataPoint;
+import org.reactome.nursa.model.DataSet;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The shared benchmark inputs.
+ *
+ * The synthetic experiments are the size of a large SPP experiment, and
+ * draw half of their symbols from the Reactome GMT, so the Reactome
+ * lookups have a realistic hit rate. The fixture dataset is read from
+ * {@code src/test/fixtures}, relative to the working directory, which
+ * is the project directory when the benchmarks are run by Maven.
+ */
+final class BenchmarkData {
+
+    /** The synthetic experiment data point count. */
+    static final int EXPERIMENT_SIZE = 20000;
+
+    static final String GMT_RESOURCE = "ReactomePathways_human_68.gmt";
+
+    static final String FIXTURE_FILE = "src/test/fixtures/gTqItVnDEP.json";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @return the Reactome gene set index built from the GMT resource
+     * @throws IOException if the resource could not be read
+     */
+    static GeneSetIndex loadGeneSetIndex() throws IOException {
+        try (InputStream input =
+                BenchmarkData.class.getClassLoader().getResourceAsStream(GMT_RESOURCE)) {
+            if (input == null) {
+                throw new IOException("GMT resource not found: " + GMT_RESOURCE);
+            }
+            return GeneSetIndex.parse(input, GMT_RESOURCE);
+        }
+    }
+
+    /**
+     * @param index the Reactome gene set index
+     * @param count the number of symbols
+     * @param seed the random seed
+     * @return the symbols, half of which are in the index
+     */
+    static String[] symbols(GeneSetIndex index, int count, long seed) {
+        Random random = new Random(seed);
+        String[] symbols = new String[count];
+        for (int i = 0; i < count; i++) {
+            symbols[i] = random.nextBoolean() ?
+                    index.getSymbol(random.nextInt(index.getSymbolCount())) :
+                    "LOC" + random.nextInt(1000000);
+        }
+        return symbols;
+    }
+
+    /**
+     * @param index the Reactome gene set index
+     * @param seed the random seed
+     * @return the synthetic experiment data points
+     */
+    static List<DataPoint> dataPoints(GeneSetIndex index, long seed) {
+        Random random = new Random(seed);
+        String[] symbols = symbols(index, EXPERIMENT_SIZE, seed);
+        List<DataPoint> dataPoints = new ArrayList<DataPoint>(EXPERIMENT_SIZE);
+        for (String symbol: symbols) {
+            DataPoint dataPoint = new DataPoint();
+            dataPoint.setSymbol(symbol);
+            dataPoint.setPvalue(random.nextDouble());
+            dataPoint.setFoldChange(random.nextGaussian() * 2);
+            dataPoints.add(dataPoint);
+        }
+        return dataPoints;
+    }
+
+    /**
+     * @return the fixture dataset file content
+     * @throws IOException if the fixture could not be read
+     */
+    static byte[] readFixture() throws IOException {
+        return Files.readAllBytes(Paths.get(FIXTURE_FILE));
+    }
+
+    /**
+     * @return the fixture dataset
+     * @throws IOException if the fixture could not be read
+     */
+    static DataSet fixtureDataSet() throws IOException {
+        return new ObjectMapper().readValue(readFixture(), DataSet.class);
+    }
+
+    /**
+     * Makes a file cache outside of Spring by setting its injected fields.
+     *
+     * @param dir the cache directory
+     * @param format the data points file format, {@code json} or
+     *      {@code columnar}
+     * @return the file cache
+     */
+    static NursaFileCache fileCache(File dir, String format) {
+        NursaFileCache fileCache = new NursaFileCache();
+        inject(fileCache, "NURSA_CACHE_DIR", dir.getPath());
+        inject(fileCache, "dataPointsFormat", format);
+        inject(fileCache, "metrics", new MetricsRegistry());
+        return fileCache;
+    }
+
+    /**
+     * Recursively deletes the given directory.
+     *
+     * @param dir the directory to delete
+     */
+    static void delete(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file: files) {
+                delete(file);
+            }
+        }
+        dir.delete();
+    }
+
+    private static void inject(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not set " + name, e);
+        }
+    }
+
+}
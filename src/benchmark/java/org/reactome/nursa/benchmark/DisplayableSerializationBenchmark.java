@@ -0,0 +1,82 @@
+package org.reactome.nursa.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reactome.nursa.geneset.GeneSetIndex;
+import org.reactome.nursa.model.DataPoint;
+import org.reactome.nursa.model.DisplayableDataPoint;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Measures the {@link DisplayableDataPoint} response serialization of an
+ * experiment, both as a list value, as a {@code /datapoints} query
+ * result is written, and streamed per data point, as the displayable
+ * experiment file is written.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DisplayableSerializationBenchmark {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final ObjectWriter displayableWriter = mapper.writerFor(DisplayableDataPoint.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    private GeneSetIndex index;
+
+    private List<DataPoint> dataPoints;
+
+    private List<DisplayableDataPoint> displayable;
+
+    @Setup
+    public void setUp() throws IOException {
+        index = BenchmarkData.loadGeneSetIndex();
+        dataPoints = BenchmarkData.dataPoints(index, 42);
+        displayable = new ArrayList<DisplayableDataPoint>(dataPoints.size());
+        for (DataPoint dataPoint: dataPoints) {
+            displayable.add(new DisplayableDataPoint(dataPoint, index.contains(dataPoint.getSymbol())));
+        }
+    }
+
+    @Benchmark
+    public byte[] listValue() throws IOException {
+        return mapper.writeValueAsBytes(displayable);
+    }
+
+    @Benchmark
+    public int streamed() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = displayableWriter.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            for (DataPoint dataPoint: dataPoints) {
+                displayableWriter.writeValue(generator,
+                        new DisplayableDataPoint(dataPoint, index.contains(dataPoint.getSymbol())));
+            }
+            generator.writeEndArray();
+        }
+        return out.size();
+    }
+
+}
@@ -0,0 +1,87 @@
+package org.reactome.nursa.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reactome.nursa.dao.DataPointsWriter;
+import org.reactome.nursa.dao.NursaFileCache;
+import org.reactome.nursa.model.DataPoint;
+import org.reactome.nursa.model.DataSet;
+
+/**
+ * Measures the experiment data points file cache writes and reads in
+ * each file format. The written dataset is the fixture dataset with a
+ * synthetic experiment.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileCacheBenchmark {
+
+    private static final int EXPERIMENT_ID = 1000;
+
+    @Param({"json", "columnar"})
+    public String format;
+
+    private File dir;
+
+    private NursaFileCache fileCache;
+
+    private DataSet dataset;
+
+    private List<DataPoint> dataPoints;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("nursa-benchmark").toFile();
+        fileCache = BenchmarkData.fileCache(dir, format);
+        dataset = BenchmarkData.fixtureDataSet();
+        dataPoints = BenchmarkData.dataPoints(BenchmarkData.loadGeneSetIndex(), 42);
+        write();
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkData.delete(dir);
+    }
+
+    @Benchmark
+    public void write() {
+        try (DataPointsWriter writer = fileCache.openDataPointsWriter(dataset.getDoi())) {
+            for (DataPoint dataPoint: dataPoints) {
+                writer.write(EXPERIMENT_ID, dataPoint);
+            }
+            writer.commit(dataset);
+        }
+    }
+
+    @Benchmark
+    public double read() {
+        // Touch every data point, since a columnar read only maps the
+        // file and decodes the rows on access.
+        double sum = 0;
+        for (DataPoint dataPoint: fileCache.readDataPoints(dataset.getDoi(), EXPERIMENT_ID)) {
+            sum += dataPoint.getPvalue();
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,60 @@
+package org.reactome.nursa.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reactome.nursa.geneset.GeneSetIndex;
+
+/**
+ * Measures the Reactome symbol lookups of an experiment's data points
+ * against the {@code ReactomePathways_human_68.gmt} index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneSetIndexBenchmark {
+
+    private GeneSetIndex index;
+
+    private String[] symbols;
+
+    @Setup
+    public void setUp() throws IOException {
+        index = BenchmarkData.loadGeneSetIndex();
+        symbols = BenchmarkData.symbols(index, BenchmarkData.EXPERIMENT_SIZE, 42);
+    }
+
+    @Benchmark
+    public int contains() {
+        int count = 0;
+        for (String symbol: symbols) {
+            if (index.contains(symbol)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int pathwayIndexes() {
+        int count = 0;
+        for (String symbol: symbols) {
+            count += index.getPathwayIndexes(symbol).length;
+        }
+        return count;
+    }
+
+}
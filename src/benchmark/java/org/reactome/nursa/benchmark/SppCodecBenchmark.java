@@ -0,0 +1,104 @@
+package org.reactome.nursa.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reactome.nursa.dao.SppCodec;
+import org.reactome.nursa.model.DataPoint;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Compares decoding a full SPP data points page into name-value map
+ * rows, as the SPP client formerly did, with the {@link SppCodec}
+ * token-level decoder. Run with the JMH {@code -prof gc} option to
+ * compare the allocation per page. The dataset listing decoder is
+ * measured on the fixture dataset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SppCodecBenchmark {
+
+    /** The SPP data points page size. */
+    private static final int PAGE_SIZE = 5000;
+
+    private byte[] page;
+
+    private byte[] listing;
+
+    @Setup
+    public void setUp() throws IOException {
+        // A dataset listing of the fixture dataset.
+        byte[] fixture = BenchmarkData.readFixture();
+        listing = new byte[fixture.length + 2];
+        listing[0] = '[';
+        System.arraycopy(fixture, 0, listing, 1, fixture.length);
+        listing[listing.length - 1] = ']';
+
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(i)
+                .append(",\"experimentId\":\"").append(random.nextInt(4) + 1000).append('"')
+                .append(",\"symbol\":\"GENE").append(random.nextInt(20000)).append('"')
+                .append(",\"pvalue\":").append(random.nextDouble())
+                .append(",\"foldChange\":").append(random.nextGaussian() * 2)
+                .append('}');
+        }
+        page = json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<DataPoint> mapRows() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectReader reader = mapper.readerFor(new TypeReference<Map<String, Object>>() { });
+        List<DataPoint> dataPoints = new ArrayList<DataPoint>(PAGE_SIZE);
+        try (MappingIterator<Map<String, Object>> rows = reader.readValues(page)) {
+            while (rows.hasNext()) {
+                Map<String, Object> row = rows.next();
+                DataPoint dataPoint = new DataPoint();
+                dataPoint.setSymbol((String) row.get("symbol"));
+                dataPoint.setPvalue(((Number) row.get("pvalue")).doubleValue());
+                dataPoint.setFoldChange(((Number) row.get("foldChange")).doubleValue());
+                dataPoints.add(dataPoint);
+            }
+        }
+        return dataPoints;
+    }
+
+    @Benchmark
+    public List<SppCodec.DataPointRow> typedRows() throws IOException {
+        return SppCodec.readDataPoints(page);
+    }
+
+    @Benchmark
+    public List<SppCodec.DataSetRow> dataSetRows() throws IOException {
+        return SppCodec.readDataSets(listing);
+    }
+
+}
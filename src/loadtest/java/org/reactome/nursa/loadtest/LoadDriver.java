@@ -0,0 +1,193 @@
+package org.reactome.nursa.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Drives a weighted mix of requests at a target rate and reports the
+ * throughput and latency percentiles of each request type.
+ *
+ * The load is open-loop: requests are issued on schedule regardless of
+ * the response times, and each latency is measured from the scheduled
+ * start, so a saturated service shows as queueing latency rather than
+ * as a lower request rate.
+ */
+public class LoadDriver {
+
+    /** A request type. */
+    public static class Target {
+        final String name;
+
+        final int weight;
+
+        final Supplier<String> path;
+
+        final List<Long> latencies = new ArrayList<Long>();
+
+        final LongAdder errors = new LongAdder();
+
+        /**
+         * @param name the request type name
+         * @param weight the relative request frequency
+         * @param path the request path and query supplier
+         */
+        public Target(String name, int weight, Supplier<String> path) {
+            this.name = name;
+            this.weight = weight;
+            this.path = path;
+        }
+
+        synchronized void record(long nanos) {
+            latencies.add(nanos);
+        }
+
+        synchronized long[] getLatencies() {
+            return latencies.stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+
+    private final String baseUrl;
+
+    private final CloseableHttpClient client;
+
+    private final int concurrency;
+
+    /**
+     * @param baseUrl the service URL
+     * @param client the HTTP client, with a pool of at least the
+     *      concurrency
+     * @param concurrency the maximum number of requests in progress
+     */
+    public LoadDriver(String baseUrl, CloseableHttpClient client, int concurrency) {
+        this.baseUrl = baseUrl;
+        this.client = client;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Issues the given request once.
+     *
+     * @param path the request path and query
+     * @return the response status code
+     * @throws IOException if the request failed
+     */
+    public int get(String path) throws IOException {
+        try (CloseableHttpResponse response = client.execute(new HttpGet(baseUrl + path))) {
+            EntityUtils.consume(response.getEntity());
+            return response.getStatusLine().getStatusCode();
+        }
+    }
+
+    /**
+     * Runs the load and waits for the outstanding requests.
+     *
+     * @param rate the target requests per second
+     * @param durationSeconds the load duration
+     * @param targets the request types
+     * @return the elapsed seconds
+     * @throws InterruptedException if the run is interrupted
+     */
+    public double run(double rate, int durationSeconds, List<Target> targets)
+            throws InterruptedException {
+        int totalWeight = targets.stream().mapToInt(target -> target.weight).sum();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long count = (long) (rate * durationSeconds);
+        long start = System.nanoTime();
+        for (long i = 0; i < count; i++) {
+            long scheduled = start + i * intervalNanos;
+            long delay = scheduled - System.nanoTime();
+            if (delay > 0) {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            }
+            Target target = pick(targets, totalWeight);
+            String path = target.path.get();
+            workers.execute(() -> {
+                try {
+                    int status = get(path);
+                    if (status >= 400) {
+                        target.errors.increment();
+                    }
+                } catch (IOException e) {
+                    target.errors.increment();
+                }
+                target.record(System.nanoTime() - scheduled);
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.HOURS);
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    private static Target pick(List<Target> targets, int totalWeight) {
+        int n = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Target target: targets) {
+            n -= target.weight;
+            if (n < 0) {
+                return target;
+            }
+        }
+        return targets.get(targets.size() - 1);
+    }
+
+    /**
+     * Prints the per-type and overall request count, error count,
+     * throughput and p50, p99 and maximum latency.
+     *
+     * @param targets the request types
+     * @param elapsedSeconds the run time
+     * @param out the report destination
+     */
+    public static void report(List<Target> targets, double elapsedSeconds, PrintStream out) {
+        Map<String, long[]> latencies = new LinkedHashMap<String, long[]>();
+        long errors = 0;
+        for (Target target: targets) {
+            latencies.put(target.name, target.getLatencies());
+            errors += target.errors.sum();
+        }
+        long[] all = latencies.values().stream().flatMapToLong(Arrays::stream).toArray();
+        out.printf("%-12s %9s %7s %9s %9s %9s %9s%n",
+                "request", "count", "errors", "req/s", "p50 ms", "p99 ms", "max ms");
+        for (Target target: targets) {
+            print(target.name, latencies.get(target.name), target.errors.sum(),
+                    elapsedSeconds, out);
+        }
+        print("all", all, errors, elapsedSeconds, out);
+    }
+
+    private static void print(String name, long[] latencies, long errors,
+            double elapsedSeconds, PrintStream out) {
+        Arrays.sort(latencies);
+        out.printf("%-12s %9d %7d %9.1f %9.1f %9.1f %9.1f%n", name, latencies.length,
+                errors, latencies.length / elapsedSeconds, percentile(latencies, 0.5),
+                percentile(latencies, 0.99), percentile(latencies, 1.0));
+    }
+
+    /**
+     * @return the nearest-rank percentile in milliseconds
+     */
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(rank, 1) - 1] / 1e6;
+    }
+
+}
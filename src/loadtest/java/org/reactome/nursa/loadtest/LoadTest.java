@@ -0,0 +1,205 @@
+package org.reactome.nursa.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.reactome.nursa.config.WebAppInitializer;
+import org.reactome.nursa.geneset.GeneSetIndex;
+
+/**
+ * Runs the service on an embedded Tomcat against the local SPP and
+ * Solr stand-ins, and drives a mixed {@code /search}, {@code /dataset}
+ * and {@code /datapoints} load.
+ *
+ * The options are {@code name=value} arguments:
+ * <ul>
+ * <li>{@code port} - the service port (default 8485)</li>
+ * <li>{@code rate} - the target requests per second (default 50)</li>
+ * <li>{@code duration} - the load seconds (default 60)</li>
+ * <li>{@code concurrency} - the maximum requests in progress (default 32)</li>
+ * <li>{@code datasets}, {@code experiments}, {@code datapoints} - the
+ *     stub SPP catalog size (default 20 datasets of 4 experiments of
+ *     20000 data points)</li>
+ * <li>{@code spp.latency}, {@code solr.latency} - the stub response
+ *     delays in milliseconds (default 50 and 5)</li>
+ * <li>{@code mix} - the search:dataset:datapoints request weights
+ *     (default 4:3:3)</li>
+ * </ul>
+ * An option whose name starts with {@code nursa.} is set as a service
+ * property, e.g. {@code nursa.spp.min.request.interval.ms=0}.
+ *
+ * The stub datasets are fetched into a temporary cache before the load
+ * starts, so the load measures the cached read paths.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<String, String>();
+        for (String arg: args) {
+            int i = arg.indexOf('=');
+            if (i < 0) {
+                throw new IllegalArgumentException("Option is not name=value: " + arg);
+            }
+            options.put(arg.substring(0, i), arg.substring(i + 1));
+        }
+        int port = Integer.parseInt(options.getOrDefault("port", "8485"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "50"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "60"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+        int dataSetCount = Integer.parseInt(options.getOrDefault("datasets", "20"));
+        int experiments = Integer.parseInt(options.getOrDefault("experiments", "4"));
+        int dataPoints = Integer.parseInt(options.getOrDefault("datapoints", "20000"));
+        long sppLatency = Long.parseLong(options.getOrDefault("spp.latency", "50"));
+        long solrLatency = Long.parseLong(options.getOrDefault("solr.latency", "5"));
+        String[] mix = options.getOrDefault("mix", "4:3:3").split(":");
+
+        File workDir = Files.createTempDirectory("nursa-loadtest").toFile();
+        StubSppServer spp = new StubSppServer(dataSetCount, experiments, dataPoints,
+                sppLatency, loadSymbols());
+        StubSolrServer solr = new StubSolrServer(spp, solrLatency);
+        spp.start();
+        solr.start();
+
+        // The system properties take precedence over application.properties.
+        System.setProperty("nursa.scheme", "http");
+        System.setProperty("nursa.host", spp.getAddress());
+        System.setProperty("nursa.api.key", "loadtest");
+        System.setProperty("nursa.cache.dir", new File(workDir, "cache").getPath());
+        System.setProperty("nursa.sync.enabled", "false");
+        System.setProperty("solr.host", solr.getUrl());
+        System.setProperty("solr.user", "");
+        System.setProperty("solr.password", "");
+        options.forEach((name, value) -> {
+            if (name.startsWith("nursa.")) {
+                System.setProperty(name, value);
+            }
+        });
+
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(new File(workDir, "tomcat").getPath());
+        tomcat.setPort(port);
+        File docBase = new File(workDir, "webapp");
+        docBase.mkdirs();
+        Context context = tomcat.addContext("", docBase.getAbsolutePath());
+        context.addServletContainerInitializer((classes, servletContext) ->
+                new WebAppInitializer().onStartup(servletContext), null);
+        tomcat.getConnector();
+        tomcat.start();
+
+        try (CloseableHttpClient client = HttpClients.custom()
+                .setMaxConnTotal(concurrency)
+                .setMaxConnPerRoute(concurrency)
+                .build()) {
+            LoadDriver driver = new LoadDriver("http://localhost:" + port, client, concurrency);
+            preload(driver, spp, concurrency);
+            List<LoadDriver.Target> targets = new ArrayList<LoadDriver.Target>();
+            targets.add(new LoadDriver.Target("search", Integer.parseInt(mix[0]), () ->
+                    "/search?size=10&term=" + random(StubSppServer.WORDS)));
+            targets.add(new LoadDriver.Target("dataset", Integer.parseInt(mix[1]), () ->
+                    "/dataset?doi=" + encode(random(spp.getDois()))));
+            targets.add(new LoadDriver.Target("datapoints", Integer.parseInt(mix[2]), () -> {
+                String doi = random(spp.getDois());
+                int experiment = ThreadLocalRandom.current().nextInt(spp.getExperimentsPerDataSet());
+                return "/datapoints?doi=" + encode(doi) +
+                        "&experimentId=" + spp.getExperimentId(doi, experiment);
+            }));
+            System.out.println("Driving " + rate + " requests/s for " + duration + "s...");
+            double elapsed = driver.run(rate, duration, targets);
+            LoadDriver.report(targets, elapsed, System.out);
+        } finally {
+            tomcat.stop();
+            tomcat.destroy();
+            solr.stop();
+            spp.stop();
+            delete(workDir);
+        }
+    }
+
+    /**
+     * Fetches the stub datasets into the cache.
+     */
+    private static void preload(LoadDriver driver, StubSppServer spp, int concurrency)
+            throws Exception {
+        System.out.println("Caching " + spp.getDois().size() + " stub datasets...");
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<Integer>> statuses = new ArrayList<Future<Integer>>();
+            for (String doi: spp.getDois()) {
+                statuses.add(executor.submit(() -> driver.get("/dataset?doi=" + encode(doi))));
+            }
+            for (int i = 0; i < statuses.size(); i++) {
+                int status = statuses.get(i).get();
+                if (status != 200) {
+                    throw new IllegalStateException("Caching " + spp.getDois().get(i) +
+                            " failed with status " + status);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return the Reactome GMT gene symbols, so that the stub data
+     *      points have Reactome genes
+     */
+    private static String[] loadSymbols() throws IOException {
+        String resource = "ReactomePathways_human_68.gmt";
+        try (InputStream input = LoadTest.class.getClassLoader().getResourceAsStream(resource)) {
+            if (input == null) {
+                throw new IOException("GMT resource not found: " + resource);
+            }
+            GeneSetIndex index = GeneSetIndex.parse(input, resource);
+            String[] symbols = new String[index.getSymbolCount()];
+            for (int i = 0; i < symbols.length; i++) {
+                symbols[i] = index.getSymbol(i);
+            }
+            return symbols;
+        }
+    }
+
+    private static String random(String[] values) {
+        return values[ThreadLocalRandom.current().nextInt(values.length)];
+    }
+
+    private static String random(List<String> values) {
+        return values.get(ThreadLocalRandom.current().nextInt(values.size()));
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            // Should never occur: UTF-8 is always supported.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child: files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+}
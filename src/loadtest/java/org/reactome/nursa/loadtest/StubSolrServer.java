@@ -0,0 +1,141 @@
+package org.reactome.nursa.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local stand-in for the Nursa Solr core, which answers the
+ * {@code doi:term OR term} search over the {@link StubSppServer}
+ * catalog in the SolrJ javabin format.
+ *
+ * A dataset matches if its DOI is the term or its name has a term
+ * word. The matches are in DOI order, and are paged by start and rows
+ * or by a cursor mark. Update requests are accepted and ignored.
+ */
+public class StubSolrServer {
+
+    static final String CORE_PATH = "/solr/nursa";
+
+    private static final String CURSOR_PREFIX = "offset:";
+
+    private final StubSppServer spp;
+
+    private final long latencyMillis;
+
+    private final HttpServer server;
+
+    /**
+     * @param spp the dataset catalog
+     * @param latencyMillis the response delay
+     * @throws IOException if the server could not be created
+     */
+    public StubSolrServer(StubSppServer spp, long latencyMillis) throws IOException {
+        this.spp = spp;
+        this.latencyMillis = latencyMillis;
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext(CORE_PATH + "/select", this::handleSelect);
+        server.createContext(CORE_PATH + "/update", this::handleUpdate);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * @return the Solr core URL
+     */
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + CORE_PATH;
+    }
+
+    private void handleSelect(HttpExchange exchange) throws IOException {
+        Map<String, String> params =
+                StubSppServer.parseQuery(exchange.getRequestURI().getRawQuery());
+        String q = params.getOrDefault("q", "");
+        int separator = q.indexOf(" OR ");
+        String term = separator < 0 ? q : q.substring(separator + " OR ".length());
+        List<String> words = Arrays.asList(term.toLowerCase(Locale.ROOT).split("\\W+"));
+        List<String> matches = spp.getDois().stream()
+                .filter(doi -> doi.equals(term) || words.stream().anyMatch(word ->
+                        !word.isEmpty() && spp.getName(doi).toLowerCase(Locale.ROOT).contains(word)))
+                .sorted()
+                .collect(Collectors.toList());
+        String cursor = params.get("cursorMark");
+        int start = cursor == null ? Integer.parseInt(params.getOrDefault("start", "0")) :
+                "*".equals(cursor) ? 0 : Integer.parseInt(cursor.substring(CURSOR_PREFIX.length()));
+        int rows = Integer.parseInt(params.getOrDefault("rows", "10"));
+        int end = Math.min(matches.size(), start + rows);
+        SolrDocumentList results = new SolrDocumentList();
+        results.setNumFound(matches.size());
+        results.setStart(start);
+        for (String doi: matches.subList(Math.min(start, end), end)) {
+            SolrDocument document = new SolrDocument();
+            document.setField("doi", doi);
+            document.setField("name", spp.getName(doi));
+            document.setField("description", "Synthetic load test " + spp.getName(doi));
+            results.add(document);
+        }
+        NamedList<Object> response = header();
+        response.add("response", results);
+        if (cursor != null) {
+            // Solr returns the given cursor on the last page.
+            response.add("nextCursorMark", end < matches.size() ? CURSOR_PREFIX + end : cursor);
+        }
+        respond(exchange, response);
+    }
+
+    private void handleUpdate(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[8192];
+            while (in.read(buffer) >= 0) {
+                // Discard the update.
+            }
+        }
+        respond(exchange, header());
+    }
+
+    private static NamedList<Object> header() {
+        NamedList<Object> header = new SimpleOrderedMap<Object>();
+        header.add("status", 0);
+        header.add("QTime", 0);
+        NamedList<Object> response = new NamedList<Object>();
+        response.add("responseHeader", header);
+        return response;
+    }
+
+    private void respond(HttpExchange exchange, NamedList<Object> response) throws IOException {
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            new JavaBinCodec().marshal(response, out);
+        }
+    }
+
+}
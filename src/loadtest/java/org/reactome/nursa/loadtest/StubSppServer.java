@@ -0,0 +1,224 @@
+package org.reactome.nursa.loadtest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local stand-in for the SPP REST API, which serves a synthetic
+ * dataset catalog.
+ *
+ * The {@code datasets} end point lists the catalog, or the dataset
+ * with the doi parameter. The {@code datapoints} end point serves a
+ * dataset's data points in id order from the startId parameter, in
+ * pages of at most countMax rows, as SPP does. Each response is
+ * delayed by the configured latency.
+ */
+public class StubSppServer {
+
+    static final String SERVICE_PATH = "/rest/api/2/";
+
+    static final String[] WORDS = {
+        "estrogen", "receptor", "androgen", "glucocorticoid", "nuclear", "kinase",
+        "liver", "breast", "prostate", "macrophage", "knockdown", "agonist",
+        "antagonist", "transcriptome", "chromatin", "coactivator"
+    };
+
+    private final int experimentsPerDataSet;
+
+    private final int dataPointsPerExperiment;
+
+    private final long latencyMillis;
+
+    private final HttpServer server;
+
+    /** The synthetic dataset DOIs. */
+    private final List<String> dois = new ArrayList<String>();
+
+    /** The {doi: name} map. */
+    private final Map<String, String> names = new HashMap<String, String>();
+
+    /** The gene symbols drawn from by the data points. */
+    private final String[] symbols;
+
+    /**
+     * @param dataSetCount the number of datasets
+     * @param experimentsPerDataSet the number of experiments per dataset
+     * @param dataPointsPerExperiment the number of data points per
+     *      experiment
+     * @param latencyMillis the response delay
+     * @param symbols the gene symbols drawn from by the data points
+     * @throws IOException if the server could not be created
+     */
+    public StubSppServer(int dataSetCount, int experimentsPerDataSet,
+            int dataPointsPerExperiment, long latencyMillis, String[] symbols)
+            throws IOException {
+        this.experimentsPerDataSet = experimentsPerDataSet;
+        this.dataPointsPerExperiment = dataPointsPerExperiment;
+        this.latencyMillis = latencyMillis;
+        this.symbols = symbols;
+        Random random = new Random(42);
+        for (int i = 0; i < dataSetCount; i++) {
+            String doi = "10.1621/LOAD" + i;
+            dois.add(doi);
+            names.put(doi, WORDS[random.nextInt(WORDS.length)] + " " +
+                    WORDS[random.nextInt(WORDS.length)] + " dataset " + i);
+        }
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext(SERVICE_PATH + "datasets", this::handleDataSets);
+        server.createContext(SERVICE_PATH + "datapoints", this::handleDataPoints);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * @return the host:port address
+     */
+    public String getAddress() {
+        return "localhost:" + server.getAddress().getPort();
+    }
+
+    public List<String> getDois() {
+        return Collections.unmodifiableList(dois);
+    }
+
+    /**
+     * @param doi the dataset DOI
+     * @return the dataset name
+     */
+    public String getName(String doi) {
+        return names.get(doi);
+    }
+
+    /**
+     * @param doi the dataset DOI
+     * @param experiment the experiment index
+     * @return the experiment id
+     */
+    public int getExperimentId(String doi, int experiment) {
+        return dois.indexOf(doi) * experimentsPerDataSet + experiment + 1;
+    }
+
+    public int getExperimentsPerDataSet() {
+        return experimentsPerDataSet;
+    }
+
+    private void handleDataSets(HttpExchange exchange) throws IOException {
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        String doi = params.get("doi");
+        List<String> selected = doi == null ? dois :
+                dois.contains(doi) ? Collections.singletonList(doi) :
+                Collections.<String>emptyList();
+        respond(exchange, generator -> {
+            generator.writeStartArray();
+            for (String selectedDoi: selected) {
+                writeDataSet(selectedDoi, generator);
+            }
+            generator.writeEndArray();
+        });
+    }
+
+    private void writeDataSet(String doi, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("doi", doi);
+        generator.writeStringField("name", names.get(doi));
+        generator.writeStringField("description", "Synthetic load test " + names.get(doi));
+        generator.writeArrayFieldStart("experiments");
+        for (int i = 0; i < experimentsPerDataSet; i++) {
+            int experimentId = getExperimentId(doi, i);
+            generator.writeStartObject();
+            generator.writeNumberField("experimentId", experimentId);
+            generator.writeStringField("internalExperimentId", "E" + experimentId);
+            generator.writeStringField("name", "Experiment " + experimentId);
+            generator.writeStringField("description", "Synthetic experiment " + experimentId);
+            generator.writeStringField("species", "Human");
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private void handleDataPoints(HttpExchange exchange) throws IOException {
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        String doi = params.get("queryValue");
+        int startId = Integer.parseInt(params.getOrDefault("startId", "0"));
+        int countMax = Integer.parseInt(params.getOrDefault("countMax", "5000"));
+        int total = experimentsPerDataSet * dataPointsPerExperiment;
+        // The ids start at 1, so the first page starts at 0.
+        int from = Math.max(startId, 1);
+        int to = Math.min(total, from + countMax - 1);
+        respond(exchange, generator -> {
+            generator.writeStartArray();
+            for (int id = from; id <= to; id++) {
+                // The rows are deterministic by dataset and id.
+                Random random = new Random(doi.hashCode() * 31L + id);
+                int experimentId = getExperimentId(doi, (id - 1) / dataPointsPerExperiment);
+                generator.writeStartObject();
+                generator.writeNumberField("id", id);
+                generator.writeStringField("experimentId", "E" + experimentId);
+                generator.writeStringField("symbol", symbols[random.nextInt(symbols.length)]);
+                generator.writeNumberField("pvalue", random.nextDouble());
+                generator.writeNumberField("foldChange", random.nextGaussian() * 2);
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        });
+    }
+
+    /** Writes a JSON response body. */
+    private interface BodyWriter {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    private void respond(HttpExchange exchange, BodyWriter body) throws IOException {
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        // A chunked response, since the length is not known up front.
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody();
+             JsonGenerator generator = new JsonFactory().createGenerator(out)) {
+            body.write(generator);
+        }
+    }
+
+    static Map<String, String> parseQuery(String query) throws IOException {
+        Map<String, String> params = new HashMap<String, String>();
+        if (query == null) {
+            return params;
+        }
+        for (String param: query.split("&")) {
+            int i = param.indexOf('=');
+            String name = i < 0 ? param : param.substring(0, i);
+            String value = i < 0 ? "" : param.substring(i + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8.name()),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8.name()));
+        }
+        return params;
+    }
+
+}
@@ -0,0 +1,175 @@
+package org.reactome.nursa.analysis;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.annotation.PreDestroy;
+
+import org.reactome.nursa.controller.NursaException;
+import org.reactome.nursa.geneset.GeneSetIndex;
+import org.reactome.nursa.model.DataPoint;
+import org.springframework.stereotype.Component;
+
+/**
+ * Pathway over-representation analysis.
+ *
+ * The significant experiment genes are tested against each pathway
+ * with the one-sided hypergeometric test. The universe is the set of
+ * measured genes which are in any pathway. The pathway tests run in
+ * parallel on a dedicated fork-join pool, and the p-values are adjusted
+ * for multiple testing by the Benjamini-Hochberg procedure.
+ */
+@Component
+public class EnrichmentAnalyzer {
+
+    private static final String ANALYSIS_HALTED_ERROR_MSG = "Enrichment analysis halted";
+
+    private final ForkJoinPool pool =
+            new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    @PreDestroy
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * @param dataPoints the experiment data points
+     * @param index the pathway gene sets
+     * @param maxPvalue the significant data point p-value upper bound
+     * @param minFoldChange the significant data point absolute fold
+     *      change lower bound
+     * @return the enrichment result
+     */
+    public EnrichmentResult analyze(List<DataPoint> dataPoints, GeneSetIndex index,
+            double maxPvalue, double minFoldChange) {
+        // Mark the measured and significant genes by symbol index.
+        boolean[] measured = new boolean[index.getSymbolCount()];
+        boolean[] significant = new boolean[index.getSymbolCount()];
+        for (DataPoint dataPoint: dataPoints) {
+            int symbol = index.getSymbolIndex(dataPoint.getSymbol());
+            if (symbol >= 0) {
+                measured[symbol] = true;
+                if (dataPoint.getPvalue() <= maxPvalue &&
+                        Math.abs(dataPoint.getFoldChange()) >= minFoldChange) {
+                    significant[symbol] = true;
+                }
+            }
+        }
+        int universe = count(measured);
+        int drawn = count(significant);
+        double[] logFactorials = logFactorials(universe);
+
+        List<PathwayEnrichment> tested;
+        try {
+            tested = pool.submit(() -> IntStream.range(0, index.getPathwayCount())
+                    .parallel()
+                    .mapToObj(pathway -> test(index, pathway, measured, significant,
+                            universe, drawn, logFactorials))
+                    .filter(result -> result != null)
+                    .collect(Collectors.toList()))
+                .get();
+        } catch (InterruptedException e) {
+            throw new NursaException(ANALYSIS_HALTED_ERROR_MSG);
+        } catch (ExecutionException e) {
+            throw new NursaException(ANALYSIS_HALTED_ERROR_MSG, e);
+        }
+        adjust(tested);
+        // Only the pathways with a significant gene are reported.
+        List<PathwayEnrichment> found = tested.stream()
+                .filter(result -> result.getFound() > 0)
+                .collect(Collectors.toList());
+
+        return new EnrichmentResult(index.getVersion(), universe, drawn, found);
+    }
+
+    /**
+     * Tests a single pathway.
+     *
+     * @return the test result, or null if the pathway has no measured gene
+     */
+    private static PathwayEnrichment test(GeneSetIndex index, int pathway,
+            boolean[] measured, boolean[] significant, int universe,
+            int drawn, double[] logFactorials) {
+        int size = 0;
+        List<String> genes = new ArrayList<String>();
+        for (int member: index.getPathwayMembers(pathway)) {
+            if (measured[member]) {
+                size++;
+                if (significant[member]) {
+                    genes.add(index.getSymbol(member));
+                }
+            }
+        }
+        if (size == 0) {
+            return null;
+        }
+        double pvalue = upperTail(genes.size(), size, drawn, universe, logFactorials);
+        return new PathwayEnrichment(index.getPathwayId(pathway),
+                index.getPathwayName(pathway), size, genes, pvalue);
+    }
+
+    /**
+     * Computes the hypergeometric probability of drawing at least
+     * {@code found} pathway genes in {@code drawn} draws without
+     * replacement from a universe which contains {@code size}
+     * pathway genes.
+     */
+    static double upperTail(int found, int size, int drawn, int universe,
+            double[] logFactorials) {
+        if (found == 0) {
+            return 1.0;
+        }
+        double logTotal = logChoose(universe, drawn, logFactorials);
+        int max = Math.min(size, drawn);
+        double pvalue = 0.0;
+        for (int i = found; i <= max; i++) {
+            double logTerm = logChoose(size, i, logFactorials) +
+                    logChoose(universe - size, drawn - i, logFactorials) - logTotal;
+            pvalue += Math.exp(logTerm);
+        }
+        return Math.min(pvalue, 1.0);
+    }
+
+    private static double logChoose(int n, int k, double[] logFactorials) {
+        return logFactorials[n] - logFactorials[k] - logFactorials[n - k];
+    }
+
+    static double[] logFactorials(int n) {
+        double[] logFactorials = new double[n + 1];
+        for (int i = 2; i <= n; i++) {
+            logFactorials[i] = logFactorials[i - 1] + Math.log(i);
+        }
+        return logFactorials;
+    }
+
+    /**
+     * Sorts the results by p-value and sets the Benjamini-Hochberg
+     * adjusted p-values.
+     */
+    private static void adjust(List<PathwayEnrichment> results) {
+        results.sort(Comparator.comparingDouble(PathwayEnrichment::getPvalue));
+        int tests = results.size();
+        double min = 1.0;
+        for (int i = tests - 1; i >= 0; i--) {
+            PathwayEnrichment result = results.get(i);
+            min = Math.min(min, result.getPvalue() * tests / (i + 1));
+            result.setFdr(min);
+        }
+    }
+
+    private static int count(boolean[] flags) {
+        int count = 0;
+        for (boolean flag: flags) {
+            if (flag) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
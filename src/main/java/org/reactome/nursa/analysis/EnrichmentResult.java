@@ -0,0 +1,56 @@
+package org.reactome.nursa.analysis;
+
+import java.util.List;
+
+/**
+ * The pathway over-representation analysis of an experiment.
+ */
+public class EnrichmentResult {
+
+    private final String geneSetVersion;
+
+    private final int universeSize;
+
+    private final int significantCount;
+
+    private final List<PathwayEnrichment> pathways;
+
+    public EnrichmentResult(String geneSetVersion, int universeSize,
+            int significantCount, List<PathwayEnrichment> pathways) {
+        this.geneSetVersion = geneSetVersion;
+        this.universeSize = universeSize;
+        this.significantCount = significantCount;
+        this.pathways = pathways;
+    }
+
+    /**
+     * @return the version of the gene set index used for the analysis
+     */
+    public String getGeneSetVersion() {
+        return geneSetVersion;
+    }
+
+    /**
+     * @return the number of measured genes which are in any pathway
+     */
+    public int getUniverseSize() {
+        return universeSize;
+    }
+
+    /**
+     * @return the number of significant measured genes which are in
+     *      any pathway
+     */
+    public int getSignificantCount() {
+        return significantCount;
+    }
+
+    /**
+     * @return the pathways with at least one significant gene, in
+     *      ascending p-value order
+     */
+    public List<PathwayEnrichment> getPathways() {
+        return pathways;
+    }
+
+}
@@ -0,0 +1,84 @@
+package org.reactome.nursa.analysis;
+
+import java.util.List;
+
+/**
+ * The over-representation test result for a single pathway.
+ */
+public class PathwayEnrichment {
+
+    private final String pathwayId;
+
+    private final String name;
+
+    private final int size;
+
+    private final List<String> genes;
+
+    private final double pvalue;
+
+    private double fdr;
+
+    public PathwayEnrichment(String pathwayId, String name, int size,
+            List<String> genes, double pvalue) {
+        this.pathwayId = pathwayId;
+        this.name = name;
+        this.size = size;
+        this.genes = genes;
+        this.pvalue = pvalue;
+    }
+
+    /**
+     * @return the Reactome pathway stable id
+     */
+    public String getPathwayId() {
+        return pathwayId;
+    }
+
+    /**
+     * @return the pathway name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of pathway genes measured in the experiment
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of significant genes in the pathway
+     */
+    public int getFound() {
+        return genes.size();
+    }
+
+    /**
+     * @return the significant genes in the pathway
+     */
+    public List<String> getGenes() {
+        return genes;
+    }
+
+    /**
+     * @return the hypergeometric test p-value
+     */
+    public double getPvalue() {
+        return pvalue;
+    }
+
+    /**
+     * @return the Benjamini-Hochberg adjusted p-value
+     */
+    public double getFdr() {
+        return fdr;
+    }
+
+    void setFdr(double fdr) {
+        this.fdr = fdr;
+    }
+
+}
@@ -0,0 +1,192 @@
+package org.reactome.nursa.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * A thread-safe in-memory LRU cache bounded by entry count, estimated
+ * weight in bytes and entry time-to-live.
+ *
+ * The least recently used entries are evicted when either the entry count
+ * or the total weight exceeds its bound. An entry older than the
+ * time-to-live is treated as a miss and removed on lookup.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class BoundedCache<K, V> {
+
+    private final String name;
+
+    private final int maxEntries;
+
+    private final long maxWeight;
+
+    private final long ttlMillis;
+
+    private final ToLongFunction<V> weigher;
+
+    /** The access-ordered entries, guarded by this cache instance. */
+    private final LinkedHashMap<K, Entry<V>> entries =
+            new LinkedHashMap<K, Entry<V>>(16, 0.75f, true);
+
+    /** The total weight of the entries, guarded by this cache instance. */
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param name the cache name reported in the {@link CacheStats}
+     * @param maxEntries the maximum number of entries
+     * @param maxWeight the maximum total entry weight
+     * @param ttlMillis the entry time-to-live in milliseconds, or zero
+     *      for no expiration
+     * @param weigher the estimated entry value weight
+     */
+    public BoundedCache(String name, int maxEntries, long maxWeight,
+            long ttlMillis, ToLongFunction<V> weigher) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.ttlMillis = ttlMillis;
+        this.weigher = weigher;
+    }
+
+    /**
+     * @param key the cache key
+     * @return the live cached value, or null if there is none
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && isExpired(entry)) {
+            remove(key);
+            evictions.increment();
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * Returns the cached value, calling the loader on a miss.
+     *
+     * The loader is called outside of the cache lock. A null
+     * loader result is returned but not cached.
+     *
+     * @param key the cache key
+     * @param loader the value factory
+     * @return the cached or loaded value
+     */
+    public V get(K key, Function<K, V> loader) {
+        V value = get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Adds the given entry, evicting the least recently used entries
+     * as necessary. A value which by itself exceeds the weight bound
+     * is not cached.
+     *
+     * @param key the cache key
+     * @param value the value to cache
+     */
+    public synchronized void put(K key, V value) {
+        long valueWeight = weigher.applyAsLong(value);
+        remove(key);
+        if (valueWeight > maxWeight) {
+            return;
+        }
+        Entry<V> entry = new Entry<V>(value, valueWeight, System.currentTimeMillis());
+        entries.put(key, entry);
+        weight += valueWeight;
+        // Evict in access order until the bounds are satisfied.
+        Iterator<Map.Entry<K, Entry<V>>> iter = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight) && iter.hasNext()) {
+            Entry<V> eldest = iter.next().getValue();
+            iter.remove();
+            weight -= eldest.weight;
+            evictions.increment();
+        }
+    }
+
+    /**
+     * @param key the key of the entry to remove
+     */
+    public synchronized void invalidate(K key) {
+        remove(key);
+    }
+
+    /**
+     * @param filter the predicate which selects the keys to remove
+     */
+    public synchronized void invalidateIf(Predicate<K> filter) {
+        Iterator<Map.Entry<K, Entry<V>>> iter = entries.entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry<K, Entry<V>> next = iter.next();
+            if (filter.test(next.getKey())) {
+                iter.remove();
+                weight -= next.getValue().weight;
+            }
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * @return the current counters
+     */
+    public synchronized CacheStats getStats() {
+        return new CacheStats(name, entries.size(), weight, hits.sum(),
+                misses.sum(), evictions.sum());
+    }
+
+    private void remove(K key) {
+        Entry<V> entry = entries.remove(key);
+        if (entry != null) {
+            weight -= entry.weight;
+        }
+    }
+
+    private boolean isExpired(Entry<V> entry) {
+        return ttlMillis > 0 &&
+                System.currentTimeMillis() - entry.created > ttlMillis;
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final long weight;
+        final long created;
+
+        Entry(V value, long weight, long created) {
+            this.value = value;
+            this.weight = weight;
+            this.created = created;
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package org.reactome.nursa.cache;
+
+/**
+ * A point-in-time snapshot of the {@link BoundedCache} counters.
+ */
+public class CacheStats {
+
+    private final String name;
+
+    private final int size;
+
+    private final long weight;
+
+    private final long hits;
+
+    private final long misses;
+
+    private final long evictions;
+
+    public CacheStats(String name, int size, long weight, long hits,
+            long misses, long evictions) {
+        this.name = name;
+        this.size = size;
+        this.weight = weight;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    /**
+     * @return the cache name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of cached entries
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the estimated number of bytes held by the cache
+     */
+    public long getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return the number of lookups which found a live entry
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups which did not find a live entry
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of entries removed to honor the size, weight
+     *      or time-to-live bounds
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the fraction of lookups which were hits, or zero if there
+     *      were no lookups
+     */
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+
+}
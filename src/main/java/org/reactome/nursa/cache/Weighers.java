@@ -0,0 +1,125 @@
+package org.reactome.nursa.cache;
+
+import java.util.List;
+
+import org.reactome.nursa.analysis.EnrichmentResult;
+import org.reactome.nursa.analysis.PathwayEnrichment;
+import org.reactome.nursa.dao.ColumnarDataPoints;
+import org.reactome.nursa.model.DataPoint;
+import org.reactome.nursa.model.DataSet;
+import org.reactome.nursa.model.DataSetSearchResult;
+import org.reactome.nursa.model.Experiment;
+import org.reactome.nursa.query.DataPointIndex;
+
+/**
+ * Rough heap size estimates of the cached Nursa model objects.
+ *
+ * The estimates assume a 64-bit JVM with compressed references and
+ * are only meant to be close enough to bound the cache memory.
+ */
+public class Weighers {
+
+    private static final int OBJECT_OVERHEAD = 16;
+
+    private static final int REFERENCE_SIZE = 4;
+
+    /** The array header, including the length field. */
+    private static final int ARRAY_OVERHEAD = 16;
+
+    /** A string object with a hash field and a char array reference. */
+    private static final int STRING_SIZE = OBJECT_OVERHEAD + 8;
+
+    /** A data point object with a reference and two double fields. */
+    private static final int DATA_POINT_SIZE = OBJECT_OVERHEAD + REFERENCE_SIZE + 16;
+
+    /**
+     * @param dataset the dataset
+     * @return the estimated dataset size in bytes
+     */
+    public static long weigh(DataSet dataset) {
+        long size = OBJECT_OVERHEAD + weigh(dataset.getDoi()) +
+                weigh(dataset.getName()) + weigh(dataset.getDescription());
+        List<Experiment> experiments = dataset.getExperiments();
+        if (experiments != null) {
+            for (Experiment experiment: experiments) {
+                size += OBJECT_OVERHEAD + REFERENCE_SIZE +
+                        weigh(experiment.getName()) +
+                        weigh(experiment.getDescription()) +
+                        weigh(experiment.getSpecies());
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @param result the search result
+     * @return the estimated search result size in bytes
+     */
+    public static long weigh(DataSetSearchResult result) {
+        long size = 2 * OBJECT_OVERHEAD;
+        for (DataSet dataset: result.getDatasets()) {
+            size += REFERENCE_SIZE + weigh(dataset);
+        }
+        return size;
+    }
+
+    /**
+     * @param dataPoints the data points
+     * @return the estimated data points list size in bytes
+     */
+    public static long weigh(List<? extends DataPoint> dataPoints) {
+        if (dataPoints instanceof ColumnarDataPoints) {
+            return weigh((ColumnarDataPoints) dataPoints);
+        }
+        long size = OBJECT_OVERHEAD + (long) dataPoints.size() * REFERENCE_SIZE;
+        for (DataPoint dataPoint: dataPoints) {
+            size += DATA_POINT_SIZE + weigh(dataPoint.getSymbol());
+        }
+        return size;
+    }
+
+    /**
+     * @param columns the columnar data points
+     * @return the estimated data points columns size in bytes
+     */
+    public static long weigh(ColumnarDataPoints columns) {
+        // The symbol offset table and the content buffer. A mapped
+        // buffer is off the heap, but is counted as well, since the
+        // cached list holds the mapping.
+        return 3 * OBJECT_OVERHEAD + (long) columns.size() * 4 + columns.getByteLength();
+    }
+
+    /**
+     * @param result the enrichment result
+     * @return the estimated enrichment result size in bytes
+     */
+    public static long weigh(EnrichmentResult result) {
+        long size = OBJECT_OVERHEAD + weigh(result.getGeneSetVersion());
+        for (PathwayEnrichment pathway: result.getPathways()) {
+            // The pathway id and name strings are shared with the index.
+            size += OBJECT_OVERHEAD + 3 * REFERENCE_SIZE + 24 +
+                    (long) pathway.getFound() * REFERENCE_SIZE;
+        }
+        return size;
+    }
+
+    /**
+     * @param index the data point sort indexes
+     * @return the estimated index size in bytes
+     */
+    public static long weigh(DataPointIndex index) {
+        // Three int sort orders and the Reactome bit set. The data
+        // points are shared with the data points cache.
+        return 5 * OBJECT_OVERHEAD + (long) index.size() * (3 * 4) + index.size() / 8;
+    }
+
+    /**
+     * @param s the string
+     * @return the estimated string size in bytes
+     */
+    public static long weigh(String s) {
+        // A Java 8 string holds two bytes per char.
+        return s == null ? 0 : STRING_SIZE + ARRAY_OVERHEAD + 2L * s.length();
+    }
+
+}
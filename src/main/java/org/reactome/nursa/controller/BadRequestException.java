@@ -0,0 +1,22 @@
+package org.reactome.nursa.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A request parameter error, which is answered with 400 Bad Request.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class BadRequestException extends NursaException {
+
+    private static final long serialVersionUID = 4630171846530839467L;
+
+    public BadRequestException(String message) {
+        super(message);
+    }
+
+    public BadRequestException(String message, Exception cause) {
+        super(message, cause);
+    }
+
+}
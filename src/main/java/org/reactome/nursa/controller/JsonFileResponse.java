@@ -0,0 +1,276 @@
+package org.reactome.nursa.controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.reactome.nursa.dao.NursaFileCache;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+/**
+ * Sends a prewritten JSON file as the response body without parsing it.
+ *
+ * If the client accepts gzip and the file has a gzip copy, then the copy
+ * is sent instead. The response has a strong ETag and a Last-Modified
+ * date derived from the sent file, and a conditional request for an
+ * unchanged file is answered with 304 Not Modified. The response has
+ * the {@code Server-Timing} header of the request stages before the
+ * file is sent.
+ *
+ * The file is opened before the response is started and is copied from
+ * the open channel with {@link FileChannel#transferTo}, so that a file
+ * which is replaced or removed in the meantime, e.g. by a gene set
+ * version change or a dataset recache, is still sent whole. The Tomcat
+ * sendfile attributes are not used, since the container would reopen
+ * the file by name after the handler returns.
+ */
+public class JsonFileResponse {
+
+    private static final String GZIP_ENCODING = "gzip";
+
+    /**
+     * Sends the file, or the 304 status if the client has it.
+     *
+     * @param file the JSON file
+     * @param request the servlet request
+     * @param response the servlet response
+     * @throws IOException if the file could not be sent
+     */
+    public static void send(File file, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        File selected = select(file, request);
+        if (!checkNotModified(selected, request, response)) {
+            transfer(selected, response);
+        }
+    }
+
+    /**
+     * @param file the JSON file
+     * @param request the servlet request
+     * @return the file gzip copy if the client accepts gzip and the
+     *      copy exists, otherwise the file
+     */
+    public static File select(File file, HttpServletRequest request) {
+        String accepted = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (accepted != null && acceptsGzip(accepted)) {
+            File gzip = new File(file.getPath() + NursaFileCache.GZIP_EXTENSION);
+            if (gzip.exists()) {
+                return gzip;
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Parses the Accept-Encoding coding list. gzip is accepted if it is
+     * listed with a nonzero quality, or if it is not listed and the
+     * {@code *} wildcard has a nonzero quality.
+     *
+     * @param accepted the Accept-Encoding header value
+     * @return whether the header accepts gzip
+     */
+    static boolean acceptsGzip(String accepted) {
+        Boolean gzip = null;
+        boolean wildcard = false;
+        for (String coding: accepted.split(",")) {
+            String[] params = coding.split(";");
+            String name = params[0].trim().toLowerCase(Locale.ROOT);
+            boolean isAcceptable = getQuality(params) > 0;
+            if (GZIP_ENCODING.equals(name) || "x-gzip".equals(name)) {
+                gzip = gzip == Boolean.TRUE || isAcceptable;
+            } else if ("*".equals(name)) {
+                wildcard = isAcceptable;
+            }
+        }
+        return gzip == null ? wildcard : gzip;
+    }
+
+    private static double getQuality(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim();
+            if (param.length() > 1 && Character.toLowerCase(param.charAt(0)) == 'q'
+                    && param.substring(1).trim().startsWith("=")) {
+                try {
+                    return Double.parseDouble(param.substring(param.indexOf('=') + 1).trim());
+                } catch (NumberFormatException e) {
+                    // An unparseable quality does not accept the coding.
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * @param selected the file returned by {@link #select}
+     * @return whether the file is a gzip copy
+     */
+    public static boolean isGzip(File selected) {
+        return selected.getName().endsWith(NursaFileCache.GZIP_EXTENSION);
+    }
+
+    /**
+     * Sets the validator headers and checks the conditional request
+     * headers. If the file is unchanged, the response status is set
+     * to 304.
+     *
+     * @param selected the file returned by {@link #select}
+     * @param request the servlet request
+     * @param response the servlet response
+     * @return whether the client has the current file
+     */
+    public static boolean checkNotModified(File selected, HttpServletRequest request,
+            HttpServletResponse response) {
+        // The representation varies with the accepted encoding.
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        ServletWebRequest webRequest = new ServletWebRequest(request, response);
+        boolean isNotModified =
+                webRequest.checkNotModified(getETag(selected), selected.lastModified());
+        if (isNotModified) {
+            ServerTimingAdvice.addHeader(response);
+        }
+        return isNotModified;
+    }
+
+    /**
+     * Sends the file selected by {@link #select}.
+     *
+     * @param selected the file returned by {@link #select}
+     * @param response the servlet response
+     * @throws IOException if the file could not be sent
+     */
+    public static void transfer(File selected, HttpServletResponse response)
+            throws IOException {
+        try (FileChannel channel = open(selected)) {
+            response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+            response.setContentLengthLong(channel.size());
+            if (isGzip(selected)) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING);
+            }
+            ServerTimingAdvice.addHeader(response);
+            copy(channel, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    /**
+     * Streams a two-level JSON object whose member values are JSON
+     * files, which are copied to the response as is. The members are
+     * written in call order, and the members of an outer key must be
+     * written consecutively.
+     *
+     * The response is started by the first member. Each file is opened
+     * before any of its member is written, so that a file which is
+     * missing at the start fails the request with an error status. A
+     * failure after the response has started aborts the response,
+     * which the client sees as an incomplete body.
+     */
+    public static class ObjectStream {
+
+        private final HttpServletResponse response;
+
+        private WritableByteChannel out;
+
+        /** The current outer key, or null before the first member. */
+        private String outerKey;
+
+        /**
+         * @param response the servlet response
+         */
+        public ObjectStream(HttpServletResponse response) {
+            this.response = response;
+        }
+
+        /**
+         * Writes the {outer key: {inner key: file content}} member.
+         *
+         * @param outer the outer key
+         * @param inner the inner key
+         * @param file the JSON file
+         * @throws IOException if the file could not be sent
+         */
+        public void write(String outer, String inner, File file) throws IOException {
+            try (FileChannel channel = open(file)) {
+                start();
+                String separator;
+                if (outerKey == null) {
+                    separator = quote(outer) + ":{";
+                } else if (outerKey.equals(outer)) {
+                    separator = ",";
+                } else {
+                    separator = "}," + quote(outer) + ":{";
+                }
+                JsonFileResponse.write(separator + quote(inner) + ":", out);
+                outerKey = outer;
+                copy(channel, out);
+            }
+        }
+
+        /**
+         * Ends the object.
+         *
+         * @throws IOException if the object end could not be sent
+         */
+        public void finish() throws IOException {
+            start();
+            JsonFileResponse.write(outerKey == null ? "}" : "}}", out);
+        }
+
+        private void start() throws IOException {
+            if (out == null) {
+                response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+                ServerTimingAdvice.addHeader(response);
+                out = Channels.newChannel(response.getOutputStream());
+                JsonFileResponse.write("{", out);
+            }
+        }
+
+    }
+
+    private static FileChannel open(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    }
+
+    private static void copy(FileChannel channel, WritableByteChannel out) throws IOException {
+        long length = channel.size();
+        long position = 0;
+        while (position < length) {
+            position += channel.transferTo(position, length - position, out);
+        }
+    }
+
+    private static void write(String content, WritableByteChannel out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static String quote(String key) {
+        return "\"" + new String(JsonStringEncoder.getInstance().quoteAsString(key)) + "\"";
+    }
+
+    /**
+     * The ETag is a digest of the file name, size and modification
+     * time. The cache files are replaced rather than updated in place,
+     * so a changed file has a new modification time.
+     */
+    private static String getETag(File file) {
+        String validator = file.getName() + ":" + file.length() + ":" + file.lastModified();
+        return "\"" + DigestUtils.sha1Hex(validator).substring(0, 16) + "\"";
+    }
+
+}
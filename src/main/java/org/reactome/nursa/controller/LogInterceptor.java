@@ -1,22 +1,47 @@
 package org.reactome.nursa.controller;
 
 import java.util.Arrays;
+import java.util.Date;
 import java.util.Map.Entry;
 import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
  
+import org.reactome.nursa.metrics.MetricsRegistry;
+import org.reactome.nursa.metrics.RequestTimer;
+import org.reactome.nursa.metrics.SlowRequest;
+import org.reactome.nursa.metrics.SlowRequestLog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.web.servlet.ModelAndView;
  
+/**
+ * Logs each request and records the per-endpoint request latency
+ * and response status metrics.
+ *
+ * Each request has a {@link RequestTimer}, which is bound to the
+ * handler thread to record the request stages. A request which takes at
+ * least the slow request threshold is added to the {@link SlowRequestLog}
+ * with its stage breakdown.
+ */
 @Component
-public class LogInterceptor implements HandlerInterceptor {
+public class LogInterceptor implements AsyncHandlerInterceptor {
  
+    /** The request timer attribute. */
+    private static final String TIMER_ATTRIBUTE = LogInterceptor.class.getName() + ".timer";
+
     Logger log = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    private MetricsRegistry metrics;
+
+    @Autowired
+    private SlowRequestLog slowRequestLog;
  
     @Override
     public void postHandle(HttpServletRequest request, HttpServletResponse response, Object object, ModelAndView model)
@@ -27,6 +52,14 @@ public class LogInterceptor implements HandlerInterceptor {
  
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object object) throws Exception {
+        // An asynchronous request is handled again when its result is
+        // ready, and is timed from the first dispatch.
+        RequestTimer timer = (RequestTimer) request.getAttribute(TIMER_ATTRIBUTE);
+        if (timer == null) {
+            timer = new RequestTimer();
+            request.setAttribute(TIMER_ATTRIBUTE, timer);
+        }
+        RequestTimer.bind(timer);
         String params = request.getParameterMap().entrySet().stream()
                                  .map(LogInterceptor::formatParameter)
                                  .collect(Collectors.joining(", "));
@@ -45,9 +78,46 @@ public class LogInterceptor implements HandlerInterceptor {
         return entry.getKey() + ": " + valueStr;
     }
 
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request,
+            HttpServletResponse response, Object object) throws Exception {
+        // The result is handled on another dispatch thread.
+        RequestTimer.bind(null);
+    }
+
     @Override
     public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
             Object object, Exception e) throws Exception {
+        RequestTimer timer = (RequestTimer) request.getAttribute(TIMER_ATTRIBUTE);
+        if (timer == null) {
+            return;
+        }
+        RequestTimer.bind(null);
+        RequestTimer.Stage serialize =
+                (RequestTimer.Stage) request.getAttribute(ServerTimingAdvice.SERIALIZE_ATTRIBUTE);
+        if (serialize != null) {
+            serialize.close();
+        }
+        // The mapping pattern bounds the endpoint label values.
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = pattern == null ? request.getServletPath() : pattern.toString();
+        // An exception is answered with an error status after this call.
+        int status = e == null ? response.getStatus() : HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        metrics.timer("nursa_http_request_duration_seconds",
+                "The request latency by endpoint.", "endpoint", endpoint)
+            .observeSince(timer.getStartNanos());
+        metrics.counter("nursa_http_requests_total",
+                "The number of requests by endpoint and response status.",
+                "endpoint", endpoint, "status", Integer.toString(status))
+            .increment();
+        double millis = timer.getElapsedMillis();
+        if (millis >= slowRequestLog.getThresholdMillis()) {
+            slowRequestLog.add(new SlowRequest(new Date(), request.getMethod(),
+                    request.getServletPath(), request.getQueryString(), status, millis,
+                    timer.getStages()));
+            log.warn("Slow request \"" + request.getServletPath() + "\" took " +
+                    Math.round(millis) + " ms: " + timer.getServerTiming());
+        }
     }
  
 }
@@ -0,0 +1,18 @@
+package org.reactome.nursa.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A missing resource error, which is answered with 404 Not Found.
+ */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class NotFoundException extends NursaException {
+
+    private static final long serialVersionUID = -2231748861603412975L;
+
+    public NotFoundException(String message) {
+        super(message);
+    }
+
+}
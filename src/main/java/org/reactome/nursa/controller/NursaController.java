@@ -1,49 +1,76 @@
 package org.reactome.nursa.controller;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.URISyntaxException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.net.URI;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.Set;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
+import org.reactome.nursa.analysis.EnrichmentAnalyzer;
+import org.reactome.nursa.analysis.EnrichmentResult;
+import org.reactome.nursa.cache.BoundedCache;
+import org.reactome.nursa.cache.CacheStats;
+import org.reactome.nursa.cache.Weighers;
 import org.reactome.nursa.model.DataPoint;
 import org.reactome.nursa.model.DataSet;
 import org.reactome.nursa.model.DataSetSearchResult;
-import org.reactome.nursa.model.Experiment;
 import org.reactome.nursa.model.DisplayableDataPoint;
+import org.reactome.nursa.model.Experiment;
 import org.reactome.nursa.controller.NursaException;
-import org.reactome.nursa.dao.NursaRestClient;
+import org.reactome.nursa.dao.NursaFileCache;
 import org.reactome.nursa.dao.NursaSolrClient;
+import org.reactome.nursa.dao.NursaSolrException;
+import org.reactome.nursa.geneset.GeneSetIndex;
+import org.reactome.nursa.geneset.GeneSetService;
+import org.reactome.nursa.ingest.DataSetFetcher;
+import org.reactome.nursa.ingest.IngestionEngine;
+import org.reactome.nursa.ingest.IngestionProgress;
+import org.reactome.nursa.ingest.IngestionReport;
+import org.reactome.nursa.ingest.IngestionResult;
+import org.reactome.nursa.ingest.SolrIndexer;
+import org.reactome.nursa.job.Job;
+import org.reactome.nursa.job.JobManager;
+import org.reactome.nursa.metrics.MetricsRegistry;
+import org.reactome.nursa.metrics.RequestTimer;
+import org.reactome.nursa.metrics.SlowRequest;
+import org.reactome.nursa.metrics.SlowRequestLog;
+import org.reactome.nursa.query.CursorSearchResult;
+import org.reactome.nursa.query.DataPointIndex;
+import org.reactome.nursa.query.DisplayableLoader;
+import org.reactome.nursa.query.ExperimentKey;
+import org.reactome.nursa.query.LocalSearchIndex;
+import org.reactome.nursa.query.Suggestion;
+import org.reactome.nursa.query.SuggestionIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 /**
  * @author Fred Loney <loneyf@ohsu.edu>
@@ -51,71 +78,319 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 @RestController
 public class NursaController {
 
-    private static final String CACHE_FILE_READ_ERROR_MSG = "Could not read Nursa cache file: ";
+    @Value("${nursa.memory.cache.max.entries}")
+    private int memoryCacheMaxEntries;
 
-    private static final String INTERNAL_EXP_ID_ERROR_MSG = "Data point internal experiment id not found in ";
+    @Value("${nursa.memory.cache.max.bytes}")
+    private long memoryCacheMaxBytes;
 
-    private static final String EXPERIMENT_CACHE_ERROR_MSG = "Nursa experiment could not be cached in ";
+    @Value("${nursa.memory.cache.ttl.seconds}")
+    private long memoryCacheTtlSeconds;
 
-    private static final String CACHE_DIRECTORY_ERROR_MSG = "Could not create Nursa experiment cache directory ";
+    @Value("${nursa.memory.cache.datasets.percent}")
+    private int datasetCachePercent;
 
-    private static final String CACHE_FILE_NOT_FOUND_MSG = "Nursa cache file not found: ";
+    @Value("${nursa.memory.cache.datapoints.percent}")
+    private int dataPointsCachePercent;
 
-    private static final String DATASETS_DIR = "datasets";
+    @Value("${nursa.memory.cache.enrichment.percent}")
+    private int enrichmentCachePercent;
 
-    private static final String EXPERIMENTS_DIR_NAME = "experiments";
- 
-    @Value("${nursa.cache.dir}")
-    private String NURSA_CACHE_DIR;
+    @Value("${nursa.memory.cache.datapointindexes.percent}")
+    private int dataPointIndexCachePercent;
+
+    @Value("${nursa.memory.cache.search.percent}")
+    private int searchCachePercent;
+
+    /** The search engine, either solr or local. */
+    @Value("${nursa.search.engine}")
+    private String searchEngine;
+
+    @Value("${nursa.search.max.page.size}")
+    private int maxSearchPageSize;
+
+    @Value("${nursa.job.wait.timeout.ms}")
+    private long jobWaitTimeoutMillis;
+
+    @Value("${nursa.batch.max.experiments}")
+    private int maxBatchExperiments;
 
     private static final Logger logger = Logger.getLogger(NursaController.class);
-    
-    private static final String[] SUPPORTED_SPECIES = {
-            "Human"
-    };
+
+    /** The {@link #searchEngine} value for the local search index only. */
+    private static final String LOCAL_SEARCH_ENGINE = "local";
+
+    /** The maximum number of typeahead suggestions. */
+    private static final int MAX_SUGGESTIONS = 100;
     
     @Autowired
     private NursaSolrClient solrClient;
     
     @Autowired
-    private NursaRestClient nursaClient;
+    private DataSetFetcher fetcher;
 
     @Autowired
-    private Environment env;
-    
-    // Configuration
-    private String gmtResource;
-    
-    // Cached gene symbols
-    private Set<String> symbols;
+    private IngestionEngine ingestionEngine;
+
+    @Autowired
+    private JobManager jobManager;
+
+    @Autowired
+    private SolrIndexer solrIndexer;
+
+    @Autowired
+    private NursaFileCache fileCache;
+
+    @Autowired
+    private GeneSetService geneSets;
+
+    @Autowired
+    private EnrichmentAnalyzer enrichmentAnalyzer;
+
+    @Autowired
+    private SuggestionIndex suggestionIndex;
+
+    @Autowired
+    private LocalSearchIndex localSearchIndex;
+
+    @Autowired
+    private DisplayableLoader displayableLoader;
+
+    @Autowired
+    private MetricsRegistry metrics;
+
+    @Autowired
+    private SlowRequestLog slowRequestLog;
+
+    // The {doi: dataset} in-memory cache.
+    private BoundedCache<String, DataSet> datasetCache;
+
+    // The {doi:experimentId: data points} in-memory cache.
+    private BoundedCache<String, List<DataPoint>> dataPointsCache;
+
+    // The {doi:experimentId:pvalue:foldChange:gene set version: result}
+    // in-memory cache.
+    private BoundedCache<String, EnrichmentResult> enrichmentCache;
+
+    // The {normalized term, start and size: result} in-memory cache.
+    private BoundedCache<String, DataSetSearchResult> searchCache;
+
+    // The {doi:experimentId:gene set version: sort indexes} in-memory cache.
+    private BoundedCache<String, DataPointIndex> dataPointIndexCache;
+
+    @PostConstruct
+    public void init() {
+        // The caches split the entry and byte bounds by percent, so
+        // that the bounds apply to the caches together.
+        int totalPercent = datasetCachePercent + dataPointsCachePercent +
+                enrichmentCachePercent + dataPointIndexCachePercent + searchCachePercent;
+        if (totalPercent > 100) {
+            throw new NursaException("The in-memory cache percents add up to " +
+                    totalPercent + ", which exceeds 100");
+        }
+        datasetCache = newCache("datasets", datasetCachePercent, Weighers::weigh);
+        dataPointsCache = newCache("datapoints", dataPointsCachePercent, Weighers::weigh);
+        enrichmentCache = newCache("enrichment", enrichmentCachePercent, Weighers::weigh);
+        dataPointIndexCache = newCache("datapointindexes", dataPointIndexCachePercent,
+                Weighers::weigh);
+        searchCache = newCache("search", searchCachePercent, Weighers::weigh);
+        for (BoundedCache<?, ?> cache: Arrays.asList(datasetCache, dataPointsCache,
+                enrichmentCache, dataPointIndexCache, searchCache)) {
+            addCacheMetrics(cache);
+        }
+        // Drop the stale in-memory entries when a dataset is recached.
+        // A recached dataset can change any search result.
+        fileCache.addListener(dataset -> {
+            invalidate(dataset.getDoi());
+            searchCache.invalidateAll();
+        });
+        // The results of a replaced gene set index are unused.
+        geneSets.addListener(index -> {
+            enrichmentCache.invalidateAll();
+            dataPointIndexCache.invalidateAll();
+        });
+    }
+ 
+    /**
+     * @param name the cache name
+     * @param percent the cache percent of the in-memory cache bounds
+     * @param weigher the cache value weigher
+     * @return the in-memory cache
+     */
+    private <V> BoundedCache<String, V> newCache(String name, int percent,
+            ToLongFunction<V> weigher) {
+        int maxEntries = Math.max(1, (int) ((long) memoryCacheMaxEntries * percent / 100));
+        long maxBytes = memoryCacheMaxBytes / 100 * percent;
+        return new BoundedCache<String, V>(name, maxEntries, maxBytes,
+                memoryCacheTtlSeconds * 1000, weigher);
+    }
+ 
+    private void addCacheMetrics(BoundedCache<?, ?> cache) {
+        String name = cache.getStats().getName();
+        metrics.gauge("nursa_memory_cache_entries", "The in-memory cache entry count.",
+                () -> cache.getStats().getSize(), "cache", name);
+        metrics.gauge("nursa_memory_cache_weight_bytes", "The in-memory cache estimated size.",
+                () -> cache.getStats().getWeight(), "cache", name);
+        metrics.counter("nursa_memory_cache_hits_total", "The in-memory cache hit count.",
+                () -> cache.getStats().getHits(), "cache", name);
+        metrics.counter("nursa_memory_cache_misses_total", "The in-memory cache miss count.",
+                () -> cache.getStats().getMisses(), "cache", name);
+        metrics.counter("nursa_memory_cache_evictions_total", "The in-memory cache eviction count.",
+                () -> cache.getStats().getEvictions(), "cache", name);
+    }
  
     /**
      * Searches for the given term in the dataset doi, name and description.
      * 
+     * The search runs on Solr, falling back to the local search index
+     * if Solr fails, or only on the local search index if the
+     * {@code nursa.search.engine} property is {@code local}. The
+     * results are cached by normalized term, paging and size until a
+     * dataset is recached.
+     * 
+     * If the cursor parameter is set, then the matches are paged in DOI
+     * order with a cursor rather than the start offset, and the result
+     * is a {@link CursorSearchResult} with the next page cursor. The
+     * first page cursor is {@code *}. A later page is served by the
+     * engine which made its cursor, and a Solr cursor which cannot be
+     * continued is answered with 400 Bad Request. The cursor page size
+     * defaults to and is capped by the {@code nursa.search.max.page.size}
+     * property, and must be at least one, since an empty page would not
+     * advance the cursor.
+     * 
      * @param term the search term
+     * @param start the index of the first match to return (default 0)
+     * @param size the number of matches to return
+     * @param cursor the optional page cursor
      * @return the JSON {doi, name} matches
-     * @throws URISyntaxException if the Nursa REST API uri is malformed
-     * @throws IOException if the Nursa REST server could not be accessed
      */
     @RequestMapping("/search")
     public DataSetSearchResult search(
             @RequestParam(value="term") String term,
             @RequestParam(value="start") Optional<Integer> start,
-            @RequestParam(value="size") Optional<Integer> size) {
+            @RequestParam(value="size") Optional<Integer> size,
+            @RequestParam(value="cursor") Optional<String> cursor) {
+        // Normalize the term whitespace. The case is significant,
+        // since the DOI match is case-sensitive.
+        String normalized = term.trim().replaceAll("\\s+", " ");
+        if (cursor.isPresent()) {
+            if (size.isPresent() && size.get() < 1) {
+                throw new BadRequestException("The cursor page size must be positive: " +
+                        size.get());
+            }
+            int pageSize = Math.min(size.orElse(maxSearchPageSize), maxSearchPageSize);
+            String key = normalized + "\u0000cursor:" + cursor.get() + ":" + pageSize;
+            return searchCache.get(key, k -> cursorSearch(normalized, cursor.get(), pageSize));
+        }
+        String key = normalized + "\u0000" + start.map(String::valueOf).orElse("") +
+                ":" + size.map(String::valueOf).orElse("");
+        return searchCache.get(key, k -> search(normalized,
+                () -> solrSearch(normalized, start, size),
+                () -> localSearchIndex.search(normalized, start, size)));
+    }
+
+    /**
+     * Pages with the engine which made the cursor. The first page is
+     * searched like an offset page. A local cursor is continued on the
+     * local search index, and a Solr cursor only on Solr, since the
+     * engines' cursors are not interchangeable.
+     * 
+     * @throws BadRequestException if the Solr cursor could not be
+     *      continued
+     */
+    private CursorSearchResult cursorSearch(String term, String cursor, int size) {
+        if (CursorSearchResult.START_CURSOR.equals(cursor)) {
+            return search(term, () -> solrCursorSearch(term, cursor, size),
+                    () -> localSearchIndex.search(term, cursor, size));
+        }
+        if (LOCAL_SEARCH_ENGINE.equals(searchEngine) || LocalSearchIndex.isLocalCursor(cursor)) {
+            return search(term, null, () -> localSearchIndex.search(term, cursor, size));
+        }
+        try {
+            return search(term, () -> solrCursorSearch(term, cursor, size), null);
+        } catch (NursaSolrException e) {
+            throw new BadRequestException("The Solr search cursor could not be continued;" +
+                    " restart the search from the " + CursorSearchResult.START_CURSOR +
+                    " cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * Searches on Solr or the local index, falling back to the local
+     * index if Solr fails. A null engine supplier is not used.
+     */
+    private <T extends DataSetSearchResult> T search(String term, Supplier<T> solr,
+            Supplier<T> local) {
+        T searchResult;
+        if (solr == null || LOCAL_SEARCH_ENGINE.equals(searchEngine)) {
+            searchResult = localSearch(local);
+        } else if (local == null) {
+            searchResult = solr.get();
+        } else {
+            try {
+                searchResult = solr.get();
+            } catch (NursaSolrException e) {
+                logger.warn("Solr search failed; using the local search index", e);
+                searchResult = localSearch(local);
+            }
+        }
+        logger.info("Search on \"" + term + "\" matched " +
+                searchResult.getNumFound() + " datasets.");
+        
+        return searchResult;
+    }
+
+    private static <T> T localSearch(Supplier<T> local) {
+        return RequestTimer.time("local-search", local);
+    }
+
+    private DataSetSearchResult solrSearch(String term, Optional<Integer> start,
+            Optional<Integer> size) {
         QueryResponse response = solrClient.search(term, start, size);
-        SolrDocumentList solrResults = response.getResults();
         DataSetSearchResult searchResult = new DataSetSearchResult();
-        long numFound = solrResults.getNumFound();
-        searchResult.setNumFound((int) numFound);
+        setSolrResults(response, searchResult);
+        
+        return searchResult;
+    }
+
+    private CursorSearchResult solrCursorSearch(String term, String cursor, int size) {
+        QueryResponse response = solrClient.search(term, cursor, size);
+        CursorSearchResult searchResult = new CursorSearchResult();
+        setSolrResults(response, searchResult);
+        // Solr returns the given cursor when there are no more matches.
+        String nextCursor = response.getNextCursorMark();
+        if (nextCursor != null && !nextCursor.equals(cursor)) {
+            searchResult.setNextCursor(nextCursor);
+        }
+        
+        return searchResult;
+    }
+
+    private static void setSolrResults(QueryResponse response, DataSetSearchResult searchResult) {
+        SolrDocumentList solrResults = response.getResults();
+        searchResult.setNumFound((int) solrResults.getNumFound());
         List<DataSet> datasets = solrResults.stream()
                                             .map(NursaController::asDataSet)
                                             .collect(Collectors.toList());
         searchResult.setDatasets(datasets);
-        logger.info("Search on \"" + term + "\" matched " + numFound + " datasets.");
-        
-        return searchResult;
     }
     
+    /**
+     * Suggests the datasets whose DOI or a name word starts with the
+     * given prefix. The suggestions come from an in-memory index of
+     * the cached datasets rather than Solr.
+     * 
+     * @param prefix the case-insensitive prefix
+     * @param limit the maximum number of suggestions (at most 100)
+     * @return the {doi, name} suggestions
+     */
+    @RequestMapping("/suggest")
+    public List<Suggestion> suggest(
+            @RequestParam(value="prefix") String prefix,
+            @RequestParam(value="limit", defaultValue="10") int limit) {
+        return suggestionIndex.suggest(prefix, Math.min(limit, MAX_SUGGESTIONS));
+    }
+
     private static DataSet asDataSet(SolrDocument doc) {
         DataSet dataset = new DataSet();
         dataset.setDoi((String) doc.getFieldValue("doi"));
@@ -128,375 +403,541 @@ public class NursaController {
     /**
      * Fetches the dataset for the given dataset.
      * 
+     * A dataset which is not cached is fetched from SPP. The
+     * {@code refresh=true} request is handled by
+     * {@link #refreshDataset(String, boolean)}.
+     * 
+     * The cached dataset file is sent as is, without reading or
+     * reserializing the dataset. The response has the file validators, and a
+     * conditional request for an unchanged dataset is answered with
+     * 304 Not Modified. A client which accepts gzip is sent the
+     * dataset file gzip copy.
+     * 
      * @param doi the dataset DOI identifier
-     * @param refresh flag indicating whether to refetch the
-     *      dataset from SPP
-     * @return the dataset object
-     * @throws IOException if the cached dataset file could not be read
+     * @param request the servlet request
+     * @param response the servlet response
+     * @return the dataset object, or null if the response is complete
+     * @throws IOException if the cached dataset file could not be sent
      */
     @RequestMapping("/dataset")
     public DataSet getDataset(
             @RequestParam(value="doi") String doi,
-            @RequestParam(value="refresh", defaultValue = "false") boolean refresh) {
-        DataSet dataset;
-        ObjectMapper mapper = new ObjectMapper();
-        File file = getDatasetFile(doi);
-        // Check the local file cache.
-        if (!refresh && file.exists()) {
-            FileReader reader;
-            try {
-                reader = new FileReader(file);
-            } catch (FileNotFoundException e) {
-                // Annoying impossible exception.
-                String message = "Cached dataset file not found: " + file;
-                throw new NursaException(message, e);
-            }
-            try {
-                dataset = mapper.readValue(reader, DataSet.class);
-            } catch (Exception e) {
-                String message =
-                        "Could not read the cached dataset file: " + file;
-                throw new NursaException(message, e);
-            } finally {
-                try {
-                    reader.close();
-                } catch (IOException e) {
-                    String message =
-                            "Could not close the cached dataset file: " + file;
-                    throw new NursaException(message, e);
-                }
+            HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        File file = fileCache.getDataSetFile(doi);
+        if (!file.exists()) {
+            // The SPP fetch caches the dataset file.
+            DataSet dataset = loadDataSet(doi);
+            if (dataset == null || !file.exists()) {
+                return dataset;
             }
-        } else {
-            dataset = fetchDataSet(doi);
+        }
+        File selected = JsonFileResponse.select(file, request);
+        if (!JsonFileResponse.checkNotModified(selected, request, response)) {
+            // Send the file which the validators describe as is.
+            JsonFileResponse.transfer(selected, response);
         }
         
+        return null;
+    }
+
+    /**
+     * @param doi the dataset DOI identifier
+     * @return the dataset from the in-memory cache, the file cache or
+     *      SPP, in that order, or null if SPP has no such dataset
+     */
+    private DataSet loadDataSet(String doi) {
+        // Check the in-memory cache.
+        DataSet dataset = datasetCache.get(doi);
+        if (dataset == null) {
+            // Check the local file cache.
+            if (fileCache.hasDataSet(doi)) {
+                dataset = RequestTimer.time("cache-read", () -> fileCache.readDataSet(doi));
+            } else {
+                dataset = RequestTimer.time("spp-fetch", () -> fetcher.fetchDataSet(doi));
+            }
+            if (dataset != null) {
+                datasetCache.put(doi, dataset);
+            }
+        }
         return dataset;
     }
 
     /**
-     * Fetches the datasets for the given date cut-off.
+     * Refetches the given dataset from SPP in a job.
+     * 
+     * The response is 202 Accepted with the {@link Job} status, unless
+     * the wait parameter is set, in which case the response is the
+     * refetched dataset when the job is done.
+     * 
+     * @param doi the dataset DOI identifier
+     * @param wait flag indicating whether to respond with the
+     *      dataset when the job is done
+     * @return the job status or dataset response
+     */
+    @RequestMapping(value="/dataset", params="refresh=true")
+    public DeferredResult<ResponseEntity<Object>> refreshDataset(
+            @RequestParam(value="doi") String doi,
+            @RequestParam(value="wait", defaultValue="false") boolean wait) {
+        Job job = jobManager.submit("Refresh dataset " + doi, listener -> {
+            invalidate(doi);
+            IngestionReport report =
+                    ingestionEngine.refresh(Collections.singleton(doi), listener);
+            IngestionResult result = report.getResults().get(0);
+            if (!result.isSuccess()) {
+                throw new NursaException(result.getError());
+            }
+            DataSet dataset = result.getDataset();
+            if (dataset != null) {
+                datasetCache.put(doi, dataset);
+            }
+            return dataset;
+        });
+        
+        return respond(job, wait);
+    }
+
+    /**
+     * Fetches the datasets for the given date cut-off in a job.
+     * 
+     * The response is 202 Accepted with the {@link Job} status, unless
+     * the wait parameter is set, in which case the response is the
+     * dataset objects when the job is done.
      * 
      * @param addedSince the date cut-off
-     * @return the dataset objects
+     * @param wait flag indicating whether to respond with the
+     *      datasets when the job is done
+     * @return the job status or datasets response
      */
     @RequestMapping("/datasets")
-    public Collection<DataSet> getDatasets(@RequestParam(value="addedsince") Date addedSince) {
-        return fetchDataSets(addedSince);
+    public DeferredResult<ResponseEntity<Object>> getDatasets(
+            @RequestParam(value="addedsince") Date addedSince,
+            @RequestParam(value="wait", defaultValue="false") boolean wait) {
+        Job job = jobManager.submit("Fetch datasets added since " + addedSince,
+                listener -> ingestionEngine.ingestAddedSince(addedSince,
+                        dataset -> true, listener).datasets());
+        
+        return respond(job, wait);
     }
 
     /**
-     * Rebuilds the dataset cache.
+     * Rebuilds the dataset cache in a job.
      * 
      * <Em>Caution</em>: this utility clobbers the existing cache.
+     * 
+     * The response is 202 Accepted with the {@link Job} status, unless
+     * the wait parameter is set, in which case the response is the
+     * per-dataset ingestion results when the job is done.
+     * 
+     * @param wait flag indicating whether to respond with the
+     *      ingestion results when the job is done
+     * @return the job status or ingestion report response
      */
     @RequestMapping("/refresh")
-    public void refresh() {
-        File datasetsDir = new File(NURSA_CACHE_DIR, DATASETS_DIR);
-        File authorityDir = Stream.of(datasetsDir.listFiles())
-            .filter(file -> file.getName().matches("\\d+\\.\\d+"))
-            .findFirst().orElse(null);
-        if (authorityDir == null) {
-            throw new NursaException("Dataset cache missing DOI authority directory");
-        }
-        String authority = authorityDir.getName();
-        Stream.of(authorityDir.listFiles())
-            .filter(File::isDirectory)
-            .map(File::getName)
-            .map(datasetName -> authority + "/" + datasetName)
-            .forEach(doi -> {
-                try {
-                    getDataset(doi, true);
-                } catch (Exception e) {
-                    System.err.println("Refresh unsuccessful for dataset: " + doi);
-                }
-            });
+    public DeferredResult<ResponseEntity<Object>> refresh(
+            @RequestParam(value="wait", defaultValue="false") boolean wait) {
+        Job job = jobManager.submit("Refresh the dataset cache",
+                listener -> ingestionEngine.refresh(fileCache.getDataSetDois(), listener));
+        
+        return respond(job, wait);
     }
 
     /**
-     * Fetches the data points for the given experiment.
+     * Reports the status, progress, completed dataset results and
+     * error of the given job.
      * 
-     * @param doi the dataset DOI identifier
-     * @param experimentId the experiment identifier
-     * @return the {@link DisplayableDataPoint} data points list
-     * @throws URISyntaxException if the Nursa REST API uri is malformed
-     * @throws IOException if the Nursa REST server could not be accessed
+     * @param id the job id
+     * @return the job status, or 404 Not Found if there is no such
+     *      job or the job has expired
      */
-    @RequestMapping("/datapoints")
-    public List<DisplayableDataPoint> getDataPoints(
-            @RequestParam(value="doi") String doi,
-            @RequestParam(value="experimentId") int experimentId)
-            throws URISyntaxException, IOException {
-        // Check the local file cache.
-        String[] relPath = doi.split("/");
-        String registrant = relPath[0];
-        String objId = relPath[1];
-        String expFileName = experimentId + ".json";
-        
-        Path expPath = Paths.get(NURSA_CACHE_DIR, DATASETS_DIR, registrant, objId,
-                EXPERIMENTS_DIR_NAME, expFileName);
-        File file = expPath.toFile();
-        if (!file.exists()) {
-            // Should never occur: the experiment file is populated with
-            // data points when the the dataset is cached.
-            throw new NursaException(CACHE_FILE_NOT_FOUND_MSG + file);
+    @RequestMapping(value="/jobs/{id}", method=RequestMethod.GET)
+    public ResponseEntity<Job> getJob(@PathVariable("id") String id) {
+        Job job = jobManager.getJob(id);
+        if (job == null) {
+            return new ResponseEntity<Job>(HttpStatus.NOT_FOUND);
         }
-        
-        // Load the data points file.
-        FileReader reader = new FileReader(file);
-        ObjectMapper mapper = new ObjectMapper();
-        List<DataPoint> dataPoints;
-        try {
-            dataPoints = mapper.readValue(reader, new TypeReference<List<DataPoint>>(){});
-        } catch (Exception e) {
-            String message = CACHE_FILE_READ_ERROR_MSG + file;
-            throw new NursaException(message, e);
-        } finally {
-            reader.close();
+        return ResponseEntity.ok(job);
+    }
+
+    /**
+     * Makes the response to a job submission.
+     * 
+     * The response is 202 Accepted with the job status and location.
+     * If the wait flag is set, then the response is instead deferred
+     * until the job is done, and is the job result if the job succeeded
+     * or 500 with the job status if it failed. A wait which times out
+     * is answered with 202 Accepted.
+     * 
+     * @param job the submitted job
+     * @param wait flag indicating whether to wait for the job result
+     * @return the deferred response
+     */
+    private DeferredResult<ResponseEntity<Object>> respond(Job job, boolean wait) {
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/jobs/{id}").buildAndExpand(job.getId()).toUri();
+        ResponseEntity<Object> accepted = ResponseEntity.accepted().location(location).body(job);
+        if (!wait) {
+            // The result is set now, so the response is not deferred.
+            DeferredResult<ResponseEntity<Object>> result = new DeferredResult<ResponseEntity<Object>>();
+            result.setResult(accepted);
+            return result;
         }
-        
-        int reactomeCnt = 0;
-        List<DisplayableDataPoint> displayable =
-                new ArrayList<DisplayableDataPoint>(dataPoints.size());
-        for (DataPoint dataPoint: dataPoints) {
-            String symbol = dataPoint.getSymbol();
-            boolean isReactome = isReactomeSymbol(symbol);
-            if (isReactome) {
-                reactomeCnt++;
+        DeferredResult<ResponseEntity<Object>> result =
+                new DeferredResult<ResponseEntity<Object>>(jobWaitTimeoutMillis, accepted);
+        job.whenDone(() -> {
+            if (job.getStatus() == Job.Status.SUCCEEDED) {
+                result.setResult(ResponseEntity.ok(job.getResult()));
+            } else {
+                result.setResult(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(job));
             }
-            DisplayableDataPoint wrapped =
-                    new DisplayableDataPoint(dataPoint, isReactome);
-            displayable.add(wrapped);
-        }
-        logger.info("Dataset " + doi + " experiment " + experimentId +
-                " loaded with " + dataPoints.size() +
-                " data points, of which " + reactomeCnt +
-                " are in Reactome.");
-        
-        return displayable;
-    }
-
-    private boolean isReactomeSymbol(String symbol) {
-        if (symbols == null) {
-            String resource = getGmtResource();
-            InputStream input = getClass().getClassLoader().getResourceAsStream(resource);
-            BufferedReader buffer = new BufferedReader(new InputStreamReader(input));
-            symbols = buffer.lines()
-                    .flatMap(NursaController::parseGeneSymbols)
-                    .collect(Collectors.toSet());
-            logger.info("Loaded " + symbols.size() + " gene symbols from " + resource + ".");
-        }
+        });
         
-        return symbols.contains(symbol);
+        return result;
     }
-    
-    private String getGmtResource() {
-        if (gmtResource == null) {
-            gmtResource = env.getProperty("gmtResource");
-            if (gmtResource == null)
-                throw new IllegalStateException("gmtResource property has not been set");
-            logger.info("Set gmtResource as: " + gmtResource);
-        }
-        
-        return gmtResource;
+
+    /**
+     * Queues every cached dataset for Solr indexing. The datasets are
+     * indexed in the background.
+     * 
+     * @return the number of queued datasets
+     */
+    @RequestMapping("/reindex")
+    public int reindex() {
+        return solrIndexer.reindex();
     }
-    
-    private static Stream<String> parseGeneSymbols(String line) {
-        // The symbols follow the first two fields.
-        return Stream.of(line.split("\\t")).skip(2);
+
+    /**
+     * Reports the dataset ingestion progress counters.
+     * 
+     * @return the ingestion progress
+     */
+    @RequestMapping("/ingestion")
+    public IngestionProgress getIngestionProgress() {
+        return ingestionEngine.getProgress();
     }
 
-    private void cacheDataSet(DataSet dataset, Map<Integer, List<DataPoint>> dataPoints) {
-        String doi = dataset.getDoi();
-        File doiDir = getDatasetDirectory(doi);
-        String dsFile = doiDir.getName() + ".json";
-        File file = new File(doiDir, dsFile);
-        ObjectMapper mapper = new ObjectMapper();
-        try {
-            FileWriter writer = new FileWriter(file);
-            try {
-                mapper.writeValue(writer, dataset);
-            } finally {
-                writer.close();
-            }
-        } catch (Exception e) {
-            String message =
-                    "Could not write the cached dataset file: " + file;
-            throw new NursaException(message, e);
-        }
-        cacheDataPoints(doiDir, dataPoints);
+    /**
+     * Converts the cached JSON experiment data points files to the
+     * memory-mapped columnar format.
+     * 
+     * @return the number of converted files
+     */
+    @RequestMapping("/migrate")
+    public int migrate() {
+        int count = fileCache.migrateToColumnar();
+        dataPointsCache.invalidateAll();
+        dataPointIndexCache.invalidateAll();
+        return count;
     }
 
-    private void cacheDataPoints(File doiDir, Map<Integer, List<DataPoint>> expDataPointMap) {
-        File expsDir = new File(doiDir, "experiments");
-        if (!expsDir.exists()) {
-            try {
-                expsDir.mkdirs();
-            }
-            catch (SecurityException e) {
-                String message = CACHE_DIRECTORY_ERROR_MSG + expsDir;
-                throw new NursaException(message, e);
-            }
-        }
-        // Write the data point files.
-        for (Entry<Integer, List<DataPoint>> entry: expDataPointMap.entrySet()) {
-            Integer expId = entry.getKey();
-            List<DataPoint> dataPoints = entry.getValue();
-            File file = new File(expsDir, expId.toString() + ".json");
-            ObjectMapper mapper = new ObjectMapper();
-            try {
-                FileWriter writer = new FileWriter(file);
-                mapper.writeValue(writer, dataPoints);
-                writer.close();
-            } catch (Exception e) {
-                String message = EXPERIMENT_CACHE_ERROR_MSG + file;
-                throw new NursaException(message, e);
-            }
-        }
+    /**
+     * Runs a pathway over-representation analysis of the significant
+     * genes in the given experiment.
+     * 
+     * A data point is significant if its p-value is at most the
+     * pvalue parameter and its absolute fold change is at least the
+     * foldChange parameter. The results are cached by experiment,
+     * thresholds and gene set version.
+     * 
+     * @param doi the dataset DOI identifier
+     * @param experimentId the experiment identifier
+     * @param pvalue the significant data point p-value upper bound
+     * @param foldChange the significant data point absolute fold
+     *      change lower bound
+     * @return the pathways ranked by p-value
+     */
+    @RequestMapping("/enrichment")
+    public EnrichmentResult getEnrichment(
+            @RequestParam(value="doi") String doi,
+            @RequestParam(value="experimentId") int experimentId,
+            @RequestParam(value="pvalue", defaultValue="0.05") double pvalue,
+            @RequestParam(value="foldChange", defaultValue="0") double foldChange) {
+        GeneSetIndex geneSetIndex = geneSets.getIndex();
+        String key = getDataPointsKey(doi, experimentId) + ":" + pvalue + ":" +
+                foldChange + ":" + geneSetIndex.getVersion();
+        return enrichmentCache.get(key, k -> {
+            List<DataPoint> dataPoints = getCachedDataPoints(doi, experimentId);
+            EnrichmentResult result = RequestTimer.time("enrichment", () ->
+                    enrichmentAnalyzer.analyze(dataPoints, geneSetIndex, pvalue, foldChange));
+            logger.info("Dataset " + doi + " experiment " + experimentId +
+                    " has " + result.getSignificantCount() +
+                    " significant genes in " + result.getPathways().size() +
+                    " pathways.");
+            return result;
+        });
     }
 
-    private File getDatasetFile(String doi) {
-        File dir = getDatasetDirectory(doi);
-        String dsFile = dir.getName() + ".json";
-        return new File(dir, dsFile);
-    }
-
-    private File getDatasetDirectory(String doi) {
-        String[] relPath = doi.split("/");
-        String registrant = relPath[0];
-        String objId = relPath[1];
-        return Paths.get(NURSA_CACHE_DIR, DATASETS_DIR, registrant, objId).toFile();
-    }
-
-    private DataSet fetchDataSet(String doi) {
-        // The {internal experiment id: experiment id} works around the
-        // following SPP REST API bug:
-        // * contrary to the SPP REST API documentation as of 04/2019,
-        //   the data point record experimentId value is the experiment
-        //   internalExperimentId, not the experimentId.
-        Map<String, Integer> expIdMap = new HashMap<String, Integer>();
-        DataSet dataset = nursaClient.getDataSet(doi)
-                        .map(row -> parseDataSetRow(row, expIdMap))
-                        .findFirst()
-                        .orElse(null);
-        // Cache the dataset.
-        if (dataset != null) {
-            // Fetch the data points.
-            Map<Integer, List<DataPoint>> dataPoints = fetchDataPoints(dataset, expIdMap);
-            // Cache the dataset.
-            cacheDataSet(dataset, dataPoints);
-        }
-        
-        return dataset;
+    /**
+     * Reports the current Reactome gene set index version and size.
+     * 
+     * @return the gene set index
+     */
+    @RequestMapping(value="/genesets", method=RequestMethod.GET)
+    public GeneSetIndex getGeneSets() {
+        return geneSets.getIndex();
+    }
+
+    /**
+     * Replaces the Reactome gene set index with the posted GMT content.
+     * The new index is built before it atomically replaces the current
+     * index.
+     * 
+     * @param content the GMT content
+     * @param source the GMT source name
+     * @return the new gene set index
+     */
+    @RequestMapping(value="/genesets", method=RequestMethod.POST)
+    public GeneSetIndex loadGeneSets(
+            @RequestBody String content,
+            @RequestParam(value="source", defaultValue="upload") String source) {
+        return geneSets.reload(content, source);
+    }
+
+    /**
+     * Reports the in-memory cache hit, miss and eviction counters.
+     * 
+     * @return the {@link CacheStats} for each in-memory cache
+     */
+    @RequestMapping("/cachestats")
+    public List<CacheStats> getCacheStats() {
+        List<CacheStats> stats = new ArrayList<CacheStats>();
+        stats.add(datasetCache.getStats());
+        stats.add(dataPointsCache.getStats());
+        stats.add(enrichmentCache.getStats());
+        stats.add(dataPointIndexCache.getStats());
+        stats.add(searchCache.getStats());
+        return stats;
     }
 
-    private List<DataSet> fetchDataSets(Date addedSince) {
-        Map<String, Integer> expIdMap = new HashMap<String, Integer>();
-        // Iterate over each record returned by the REST call.
-        List<DataSet> datasets = nursaClient.getDataSets(addedSince)
-                        .map(row -> parseDataSetRow(row, expIdMap))
-                        .filter(NursaController::isSupportedSpecies)
-                        .collect(Collectors.toList());
-        for (DataSet dataset: datasets) {
-            // Fetch the data points.
-            Map<Integer, List<DataPoint>> dataPoints = fetchDataPoints(dataset, expIdMap);
-            // Cache the dataset.
-            cacheDataSet(dataset, dataPoints);
+    /**
+     * Writes the service metrics in the Prometheus text format.
+     * 
+     * @param response the servlet response
+     * @throws IOException if the metrics could not be written
+     */
+    @RequestMapping(value="/metrics", method=RequestMethod.GET)
+    public void getMetrics(HttpServletResponse response) throws IOException {
+        response.setContentType(MetricsRegistry.CONTENT_TYPE);
+        ServerTimingAdvice.addHeader(response);
+        metrics.write(response.getWriter());
+    }
+
+    /**
+     * Reports the most recent requests which took at least the
+     * {@code nursa.slow.request.ms} threshold, with the time of each
+     * request stage.
+     * 
+     * @return the slow requests, most recent first
+     */
+    @RequestMapping(value="/slowrequests", method=RequestMethod.GET)
+    public List<SlowRequest> getSlowRequests() {
+        return slowRequestLog.getRequests();
+    }
+
+    /**
+     * Fetches the data points for the given experiment.
+     * 
+     * Without a filter, sort or paging parameter, the response is the
+     * experiment {@link DisplayableDataPoint} JSON file for the current
+     * gene set version, or its gzip copy, which is sent as is. A
+     * conditional request for an unchanged file is answered with 304
+     * Not Modified.
+     * 
+     * Otherwise, the data points are selected from the cached
+     * experiment sort indexes.
+     * 
+     * @param doi the dataset DOI identifier
+     * @param experimentId the experiment identifier
+     * @param maxPvalue the optional inclusive p-value upper bound
+     * @param minAbsFoldChange the optional inclusive absolute fold
+     *      change lower bound
+     * @param reactomeOnly flag indicating whether to select only the
+     *      data points which are in Reactome
+     * @param sort the optional {@code pvalue}, {@code foldChange}
+     *      (descending absolute value) or {@code symbol} sort order
+     * @param offset the non-negative number of selected data points
+     *      to skip
+     * @param limit the optional non-negative maximum number of data
+     *      points
+     * @param request the servlet request
+     * @param response the servlet response
+     * @return the selected {@link DisplayableDataPoint} data points
+     *      list, or null if the experiment file was sent
+     * @throws IOException if the data points file could not be sent
+     * @throws BadRequestException if the offset or limit is negative,
+     *      or the sort is not supported
+     */
+    @RequestMapping("/datapoints")
+    public List<DisplayableDataPoint> getDataPoints(
+            @RequestParam(value="doi") String doi,
+            @RequestParam(value="experimentId") int experimentId,
+            @RequestParam(value="maxPvalue") Optional<Double> maxPvalue,
+            @RequestParam(value="minAbsFoldChange") Optional<Double> minAbsFoldChange,
+            @RequestParam(value="reactomeOnly", defaultValue="false") boolean reactomeOnly,
+            @RequestParam(value="sort") Optional<String> sort,
+            @RequestParam(value="offset", defaultValue="0") int offset,
+            @RequestParam(value="limit") Optional<Integer> limit,
+            HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (offset < 0) {
+            throw new BadRequestException("The data points offset is negative: " + offset);
         }
-        
-        return datasets;
-    }
-
-    private Map<Integer, List<DataPoint>> fetchDataPoints(DataSet dataset, Map<String, Integer> expIdMap) {
-        Map<Integer, List<DataPoint>> expDataPointsMap =
-                new HashMap<Integer, List<DataPoint>>();
-        // Partition each data point by experiment id.
-        nursaClient.getDataPoints(dataset.getDoi()).forEach(row -> {
-            String internalExpId = (String) row.get("experimentId");
-            Integer expId = expIdMap.get(internalExpId);
-            if (expId == null) {
-                String msg = INTERNAL_EXP_ID_ERROR_MSG + "dataset: " +
-                        dataset.getDoi() + "; experiment internal id: " + internalExpId;
-                throw new NursaException(msg);
-            }
-            List<DataPoint> expDataPoints = expDataPointsMap.get(expId);
-            if (expDataPoints == null) {
-                expDataPoints = new ArrayList<DataPoint>();
-                expDataPointsMap.put(expId, expDataPoints);
-            }
-            DataPoint datapoint = parseDataPointRow(row);
-            expDataPoints.add(datapoint);
+        if (limit.isPresent() && limit.get() < 0) {
+            throw new BadRequestException("The data points limit is negative: " + limit.get());
+        }
+        GeneSetIndex geneSetIndex = geneSets.getIndex();
+        boolean isQuery = maxPvalue.isPresent() || minAbsFoldChange.isPresent() ||
+                reactomeOnly || sort.isPresent() || offset > 0 || limit.isPresent();
+        if (!isQuery) {
+            File file = RequestTimer.time("displayable", () ->
+                    fileCache.getDisplayableFile(doi, experimentId, geneSetIndex));
+            JsonFileResponse.send(file, request, response);
+            return null;
+        }
+        DataPointIndex.Sort order =
+                sort.map(DataPointIndex.Sort::parse).orElse(DataPointIndex.Sort.NONE);
+        String key = getDataPointsKey(doi, experimentId) + ":" + geneSetIndex.getVersion();
+        DataPointIndex index = dataPointIndexCache.get(key, k -> {
+            List<DataPoint> dataPoints = getCachedDataPoints(doi, experimentId);
+            return RequestTimer.time("index", () -> new DataPointIndex(dataPoints, geneSetIndex));
         });
         
-        return expDataPointsMap;
+        return RequestTimer.time("query", () ->
+                index.query(maxPvalue.orElse(Double.POSITIVE_INFINITY),
+                        minAbsFoldChange.orElse(0.0), reactomeOnly, order, offset,
+                        limit.orElse(Integer.MAX_VALUE)));
     }
 
-    private static boolean isSupportedSpecies(DataSet dataset) {
-        return dataset.getExperiments().stream()
-                .map(Experiment::getSpecies)
-                .allMatch(NursaController::isSupportedSpecies);
+    /**
+     * Fetches the data points of several experiments of the given
+     * dataset in one response.
+     * 
+     * The experiments default to every experiment of the dataset. The
+     * dataset is not fetched from SPP, and a dataset which is not
+     * cached is answered with 404 Not Found; it can be fetched with a
+     * {@code /dataset?refresh=true} job. The response is described in
+     * {@link #getDataPointsBatch(List, HttpServletResponse)}.
+     * 
+     * @param doi the dataset DOI identifier
+     * @param experimentIds the optional experiment identifiers
+     * @param response the servlet response
+     * @throws IOException if the data points could not be sent
+     */
+    @RequestMapping(value="/datapoints/batch", method=RequestMethod.GET)
+    public void getDataPointsBatch(
+            @RequestParam(value="doi") String doi,
+            @RequestParam(value="experimentId", required=false) List<Integer> experimentIds,
+            HttpServletResponse response)
+            throws IOException {
+        List<ExperimentKey> experiments = new ArrayList<ExperimentKey>();
+        if (experimentIds == null) {
+            // Only a cached dataset is served, since an SPP fetch
+            // would block the request thread.
+            if (!fileCache.hasDataSet(doi)) {
+                throw new NotFoundException("Dataset not found: " + doi);
+            }
+            DataSet dataset = datasetCache.get(doi, k ->
+                    RequestTimer.time("cache-read", () -> fileCache.readDataSet(doi)));
+            if (dataset.getExperiments() != null) {
+                for (Experiment experiment: dataset.getExperiments()) {
+                    experiments.add(new ExperimentKey(doi, experiment.getId()));
+                }
+            }
+        } else {
+            for (Integer experimentId: experimentIds) {
+                experiments.add(new ExperimentKey(doi, experimentId));
+            }
+        }
+        sendDataPointsBatch(experiments, response);
     }
 
-    private static boolean isSupportedSpecies(String species) {
-        return Stream.of(SUPPORTED_SPECIES)
-                .anyMatch(supported ->  supported.equals(species));
+    /**
+     * Fetches the data points of the posted experiments in one response.
+     * 
+     * The experiment files are prepared in parallel on a bounded pool.
+     * The response is streamed from the files as the JSON {doi:
+     * {experimentId: data points}} object, and each experiment is sent
+     * as soon as it and the experiments before it are ready. Each data
+     * points value is the experiment {@link DisplayableDataPoint} list
+     * sent by {@code /datapoints} for the current gene set version.
+     * The number of experiments is capped by the
+     * {@code nursa.batch.max.experiments} property. An experiment
+     * without a DOI or experimentId, or a batch over the cap, is
+     * answered with 400 Bad Request, and a dataset which is not cached
+     * with 404 Not Found. A failure after the first experiment is sent
+     * aborts the response.
+     * 
+     * @param experiments the JSON [{doi, experimentId}] experiments
+     * @param response the servlet response
+     * @throws IOException if the data points could not be sent
+     */
+    @RequestMapping(value="/datapoints/batch", method=RequestMethod.POST)
+    public void getDataPointsBatch(
+            @RequestBody List<ExperimentKey> experiments,
+            HttpServletResponse response)
+            throws IOException {
+        sendDataPointsBatch(experiments, response);
     }
 
-    private static DataSet parseDataSetRow(Map<String, Object> row, Map<String, Integer> expIdMap) {
-        DataSet dataset = new DataSet();
-        String doi = (String) row.get("doi");
-        if (doi == null) {
-            throw new NursaException("Missing doi field for dataset row");
+    private void sendDataPointsBatch(List<ExperimentKey> experiments,
+            HttpServletResponse response) throws IOException {
+        for (ExperimentKey key: experiments) {
+            if (key == null || key.getDoi() == null || key.getExperimentId() == null) {
+                throw new BadRequestException(
+                        "The batch experiment is missing a DOI or experimentId: " + key);
+            }
         }
-        dataset.setDoi(doi);
-        String name = (String) row.get("name");
-        if (name == null) {
-            throw new NursaException("Missing name field for dataset row " + doi);
+        // A repeated experiment is sent once.
+        List<ExperimentKey> distinct =
+                new ArrayList<ExperimentKey>(new LinkedHashSet<ExperimentKey>(experiments));
+        if (distinct.size() > maxBatchExperiments) {
+            throw new BadRequestException("The batch of " + distinct.size() +
+                    " experiments exceeds the maximum of " + maxBatchExperiments);
         }
-        dataset.setName(name);
-        String description = (String) row.get("description");
-        // Description is missing from record as of 04/2019.
-        if (description != null) {
-            dataset.setDescription(description);
+        for (ExperimentKey key: distinct) {
+            if (!fileCache.hasDataSet(key.getDoi())) {
+                throw new NotFoundException("Dataset not found: " + key.getDoi());
+            }
+        }
+        // Group the experiments by dataset, since the members of a
+        // dataset are written together.
+        Map<String, List<ExperimentKey>> byDoi = new LinkedHashMap<String, List<ExperimentKey>>();
+        for (ExperimentKey key: distinct) {
+            byDoi.computeIfAbsent(key.getDoi(), doi -> new ArrayList<ExperimentKey>()).add(key);
         }
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> expRows = (List<Map<String, Object>>) row.get("experiments");
-        // Parse the experiments JSON into an iterator over name-value map records.
-        List<Experiment> experiments;
-        experiments = expRows.stream()
-            .map(expRow -> parseExperimentRow(expRow, expIdMap))
-            .collect(Collectors.toList());
-        dataset.setExperiments(experiments);
+        List<ExperimentKey> grouped = new ArrayList<ExperimentKey>(distinct.size());
+        byDoi.values().forEach(grouped::addAll);
+        GeneSetIndex geneSetIndex = geneSets.getIndex();
+        JsonFileResponse.ObjectStream stream = new JsonFileResponse.ObjectStream(response);
+        displayableLoader.load(grouped, geneSetIndex, (key, file) ->
+                stream.write(key.getDoi(), key.getExperimentId().toString(), file));
+        stream.finish();
+    }
 
-        return dataset;
+    private List<DataPoint> getCachedDataPoints(String doi, int experimentId) {
+        String key = getDataPointsKey(doi, experimentId);
+        return dataPointsCache.get(key, k -> {
+            return RequestTimer.time("cache-read", () ->
+                    fileCache.readDataPoints(doi, experimentId));
+        });
     }
 
-    private static Experiment parseExperimentRow(Map<String, Object> row, Map<String, Integer> expIdMap) {
-        Experiment experiment = new Experiment();
-        Integer id = (Integer) row.get("experimentId");
-        String internalId = (String) row.get("internalExperimentId");
-        experiment.setId(id);
-        String name = (String) row.get("name");
-        experiment.setName(name);
-        String description = (String) row.get("description");
-        experiment.setDescription(description);
-        String species = (String) row.get("species");
-        experiment.setSpecies(species);
-        expIdMap.put(internalId, id);
-        
-        return experiment;
-    }
-
-    private static DataPoint parseDataPointRow(Map<String, Object> row) {
-        DataPoint datapoint = new DataPoint();
-        String symbol = (String) row.get("symbol");
-        datapoint.setSymbol(symbol);
-        // Zero parses as an Integer.
-        Number pValue = (Number) row.get("pvalue");
-        datapoint.setPvalue(pValue.doubleValue());
-        Number fc = (Number) row.get("foldChange");
-        datapoint.setFoldChange(fc.doubleValue());
-        
-        return datapoint;
+    private static String getDataPointsKey(String doi, int experimentId) {
+        return doi + ":" + experimentId;
+    }
+
+    /**
+     * Removes the given dataset and its experiment data points from
+     * the in-memory caches.
+     * 
+     * @param doi the dataset DOI
+     */
+    private void invalidate(String doi) {
+        datasetCache.invalidate(doi);
+        String prefix = doi + ":";
+        dataPointsCache.invalidateIf(key -> key.startsWith(prefix));
+        enrichmentCache.invalidateIf(key -> key.startsWith(prefix));
+        dataPointIndexCache.invalidateIf(key -> key.startsWith(prefix));
     }
 
 }
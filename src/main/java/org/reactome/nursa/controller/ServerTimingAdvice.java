@@ -0,0 +1,67 @@
+package org.reactome.nursa.controller;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.reactome.nursa.metrics.RequestTimer;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds the {@code Server-Timing} header to a response body, and starts
+ * the {@code serialize} stage, which is closed when the request is
+ * complete.
+ *
+ * A response which is written by the handler, e.g. by
+ * {@link JsonFileResponse}, calls {@link #addHeader} instead.
+ */
+@ControllerAdvice
+public class ServerTimingAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    /** The started serialize stage attribute. */
+    public static final String SERIALIZE_ATTRIBUTE =
+            ServerTimingAdvice.class.getName() + ".serialize";
+
+    /**
+     * Sets the {@code Server-Timing} header to the current request stages.
+     *
+     * @param response the servlet response
+     */
+    public static void addHeader(HttpServletResponse response) {
+        RequestTimer timer = RequestTimer.current();
+        if (timer != null) {
+            response.setHeader(SERVER_TIMING_HEADER, timer.getServerTiming());
+        }
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType,
+            Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType,
+            MediaType contentType, Class<? extends HttpMessageConverter<?>> converterType,
+            ServerHttpRequest request, ServerHttpResponse response) {
+        RequestTimer timer = RequestTimer.current();
+        if (timer == null) {
+            return body;
+        }
+        response.getHeaders().set(SERVER_TIMING_HEADER, timer.getServerTiming());
+        if (request instanceof ServletServerHttpRequest) {
+            HttpServletRequest servletRequest = ((ServletServerHttpRequest) request).getServletRequest();
+            servletRequest.setAttribute(SERIALIZE_ATTRIBUTE, timer.start("serialize"));
+        }
+        return body;
+    }
+
+}
@@ -0,0 +1,96 @@
+package org.reactome.nursa.dao;
+
+/**
+ * Spaces the starts of successive requests to a host by an interval
+ * which adapts to the host's responses.
+ *
+ * The interval doubles when the host signals overload with a 429 or
+ * 503 status, grows by one step when a response is slower than the
+ * slow response threshold, and otherwise shrinks by one step back
+ * toward the minimum interval.
+ */
+public class AdaptivePacer {
+
+    private final long minIntervalMillis;
+
+    private final long maxIntervalMillis;
+
+    private final long slowResponseMillis;
+
+    /** The additive interval adjustment. */
+    private final long stepMillis;
+
+    // The pacing state, guarded by this pacer.
+    private long intervalMillis;
+
+    private long nextSlot;
+
+    /**
+     * @param minIntervalMillis the minimum time between request starts
+     * @param maxIntervalMillis the maximum time between request starts
+     * @param slowResponseMillis the response time above which the
+     *      interval is increased
+     */
+    public AdaptivePacer(long minIntervalMillis, long maxIntervalMillis,
+            long slowResponseMillis) {
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxIntervalMillis = Math.max(minIntervalMillis, maxIntervalMillis);
+        this.slowResponseMillis = slowResponseMillis;
+        this.stepMillis = Math.max(minIntervalMillis, 100);
+        this.intervalMillis = minIntervalMillis;
+    }
+
+    /**
+     * Blocks until the calling thread may issue the next request.
+     *
+     * @throws InterruptedException if the thread is interrupted
+     *      while waiting
+     */
+    public void acquire() throws InterruptedException {
+        long delay;
+        // Reserve the next free slot.
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            long slot = Math.max(now, nextSlot);
+            nextSlot = slot + intervalMillis;
+            delay = slot - now;
+        }
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+    }
+
+    /**
+     * Adapts the interval to a successful response.
+     *
+     * @param latencyMillis the response time
+     */
+    public synchronized void onSuccess(long latencyMillis) {
+        if (latencyMillis > slowResponseMillis) {
+            intervalMillis = Math.min(maxIntervalMillis, intervalMillis + stepMillis);
+        } else {
+            intervalMillis = Math.max(minIntervalMillis, intervalMillis - stepMillis);
+        }
+    }
+
+    /**
+     * Backs off after the host signals overload.
+     *
+     * @param retryAfterMillis the host Retry-After delay, or zero if
+     *      there is none
+     */
+    public synchronized void onOverload(long retryAfterMillis) {
+        intervalMillis = Math.min(maxIntervalMillis,
+                Math.max(2 * Math.max(intervalMillis, stepMillis), retryAfterMillis));
+        // Hold off the next request for at least the Retry-After delay.
+        nextSlot = Math.max(nextSlot, System.currentTimeMillis() + retryAfterMillis);
+    }
+
+    /**
+     * @return the current interval between request starts
+     */
+    public synchronized long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+}
@@ -0,0 +1,449 @@
+package org.reactome.nursa.dao;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.reactome.nursa.model.DataPoint;
+
+/**
+ * An experiment's data points held in columns.
+ *
+ * The columnar file format is as follows:
+ * <ul>
+ * <li>a 16-byte header consisting of the {@link #MAGIC} number,
+ *     the format version, the row count and the symbol table
+ *     byte length</li>
+ * <li>the symbol table, consisting of an unsigned short UTF-8
+ *     byte length followed by the UTF-8 bytes for each row symbol,
+ *     where the {@link #NULL_SYMBOL} length denotes a null symbol</li>
+ * <li>zero padding to the next 8-byte boundary</li>
+ * <li>the row pvalue doubles</li>
+ * <li>the row fold change doubles</li>
+ * </ul>
+ * All values are big-endian.
+ *
+ * A file is read through a memory-mapped buffer without per-row
+ * parsing. Only a table of the row symbol offsets is built on the heap;
+ * the symbols are decoded and the {@link DataPoint} elements are
+ * created on demand, and the column values are read from the buffer.
+ * The buffer is only read with absolute gets, so that the list can be
+ * shared by threads.
+ */
+public class ColumnarDataPoints extends AbstractList<DataPoint> implements RandomAccess {
+
+    /** The columnar file extension. */
+    public static final String FILE_EXTENSION = ".columns";
+
+    /** The file header magic number "NDPC". */
+    private static final int MAGIC = 0x4E445043;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_LENGTH = 16;
+
+    private static final int NULL_SYMBOL = 0xFFFF;
+
+    private static final String FORMAT_ERROR_MSG = "Not a columnar data points file: ";
+
+    /** The columnar file content. */
+    private final ByteBuffer buffer;
+
+    /** The row symbol length prefix offsets. */
+    private final int[] symbolOffsets;
+
+    private final int pvaluesOffset;
+
+    private final int foldChangesOffset;
+
+    /**
+     * @param buffer the columnar file content
+     * @param source the content source, for the error message
+     * @throws IOException if the content is not a columnar file
+     */
+    private ColumnarDataPoints(ByteBuffer buffer, Object source) throws IOException {
+        if (buffer.capacity() < HEADER_LENGTH || buffer.getInt(0) != MAGIC) {
+            throw new IOException(FORMAT_ERROR_MSG + source);
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported columnar data points version " +
+                    version + " in " + source);
+        }
+        int size = buffer.getInt(8);
+        int symbolsLength = buffer.getInt(12);
+        if (size < 0 || symbolsLength < 0 ||
+                buffer.capacity() < columnsOffset(symbolsLength) + 16L * size) {
+            throw new IOException(FORMAT_ERROR_MSG + source);
+        }
+        pvaluesOffset = columnsOffset(symbolsLength);
+        foldChangesOffset = pvaluesOffset + 8 * size;
+        // Walk the symbol table length prefixes.
+        symbolOffsets = new int[size];
+        int offset = HEADER_LENGTH;
+        int end = HEADER_LENGTH + symbolsLength;
+        for (int i = 0; i < size; i++) {
+            if (offset + 2 > end) {
+                throw new IOException(FORMAT_ERROR_MSG + source);
+            }
+            symbolOffsets[i] = offset;
+            int length = buffer.getShort(offset) & 0xFFFF;
+            offset += 2 + (length == NULL_SYMBOL ? 0 : length);
+        }
+        if (offset != end) {
+            throw new IOException(FORMAT_ERROR_MSG + source);
+        }
+        this.buffer = buffer;
+    }
+
+    /**
+     * @param dataPoints the data points to convert
+     * @return the columnar data points
+     * @throws IOException if a data point symbol is too long
+     */
+    public static ColumnarDataPoints of(List<? extends DataPoint> dataPoints)
+            throws IOException {
+        if (dataPoints instanceof ColumnarDataPoints) {
+            return (ColumnarDataPoints) dataPoints;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encode(dataPoints, out);
+        return new ColumnarDataPoints(ByteBuffer.wrap(out.toByteArray()), "data points");
+    }
+
+    /**
+     * Maps the given columnar file.
+     *
+     * @param file the columnar file
+     * @return the data points
+     * @throws IOException if the file could not be read
+     */
+    public static ColumnarDataPoints read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // The mapping remains valid after the channel is closed.
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ColumnarDataPoints(buffer, file);
+        }
+    }
+
+    /**
+     * Writes the given data points to a columnar file.
+     *
+     * @param dataPoints the data points to write
+     * @param file the target file
+     * @throws IOException if the file could not be written
+     */
+    public static void write(List<? extends DataPoint> dataPoints, File file)
+            throws IOException {
+        try (OutputStream os = new FileOutputStream(file)) {
+            if (dataPoints instanceof ColumnarDataPoints) {
+                ((ColumnarDataPoints) dataPoints).write(os);
+            } else {
+                encode(dataPoints, os);
+            }
+        }
+    }
+
+    /**
+     * Writes this object's data points in the columnar file format.
+     *
+     * @param os the output stream
+     * @throws IOException if the stream could not be written
+     */
+    public void write(OutputStream os) throws IOException {
+        ByteBuffer content = buffer.duplicate();
+        content.clear();
+        WritableByteChannel out = Channels.newChannel(os);
+        while (content.hasRemaining()) {
+            out.write(content);
+        }
+    }
+
+    /**
+     * Encodes the given data points in the columnar file format.
+     */
+    private static void encode(List<? extends DataPoint> dataPoints, OutputStream os)
+            throws IOException {
+        // Encode the symbol table first to determine its length.
+        byte[][] encoded = new byte[dataPoints.size()][];
+        int symbolsLength = 0;
+        int i = 0;
+        for (DataPoint dataPoint: dataPoints) {
+            String symbol = dataPoint.getSymbol();
+            if (symbol != null) {
+                encoded[i] = symbol.getBytes(StandardCharsets.UTF_8);
+                if (encoded[i].length >= NULL_SYMBOL) {
+                    throw new IOException("Data point symbol is too long: " + symbol);
+                }
+                symbolsLength += encoded[i].length;
+            }
+            symbolsLength += 2;
+            i++;
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(encoded.length);
+        out.writeInt(symbolsLength);
+        for (byte[] bytes: encoded) {
+            if (bytes == null) {
+                out.writeShort(NULL_SYMBOL);
+            } else {
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+        }
+        int padding = columnsOffset(symbolsLength) - HEADER_LENGTH - symbolsLength;
+        out.write(new byte[padding]);
+        for (DataPoint dataPoint: dataPoints) {
+            out.writeDouble(dataPoint.getPvalue());
+        }
+        for (DataPoint dataPoint: dataPoints) {
+            out.writeDouble(dataPoint.getFoldChange());
+        }
+        out.flush();
+    }
+
+    /**
+     * Incrementally writes a columnar file.
+     *
+     * The symbol table and the columns are spooled to temporary files
+     * next to the target file and assembled by {@link #finish()}, so
+     * that the writer memory does not grow with the row count.
+     */
+    public static class StreamWriter implements Closeable {
+
+        private final File file;
+
+        private final File symbolsFile;
+
+        private final File pvaluesFile;
+
+        private final File foldChangesFile;
+
+        private final DataOutputStream symbols;
+
+        private final DataOutputStream pvalues;
+
+        private final DataOutputStream foldChanges;
+
+        private int size;
+
+        private int symbolsLength;
+
+        private boolean closed;
+
+        /**
+         * @param file the target columnar file
+         * @throws IOException if a spool file could not be created
+         */
+        public StreamWriter(File file) throws IOException {
+            this.file = file;
+            File dir = file.getParentFile();
+            String name = file.getName();
+            symbolsFile = new File(dir, name + ".symbols.tmp");
+            pvaluesFile = new File(dir, name + ".pvalues.tmp");
+            foldChangesFile = new File(dir, name + ".foldChanges.tmp");
+            symbols = open(symbolsFile);
+            pvalues = open(pvaluesFile);
+            foldChanges = open(foldChangesFile);
+        }
+
+        /**
+         * @param dataPoint the next data point
+         * @throws IOException if the data point could not be spooled
+         */
+        public void write(DataPoint dataPoint) throws IOException {
+            String symbol = dataPoint.getSymbol();
+            if (symbol == null) {
+                symbols.writeShort(NULL_SYMBOL);
+            } else {
+                byte[] bytes = symbol.getBytes(StandardCharsets.UTF_8);
+                if (bytes.length >= NULL_SYMBOL) {
+                    throw new IOException("Data point symbol is too long: " + symbol);
+                }
+                symbols.writeShort(bytes.length);
+                symbols.write(bytes);
+                symbolsLength += bytes.length;
+            }
+            symbolsLength += 2;
+            pvalues.writeDouble(dataPoint.getPvalue());
+            foldChanges.writeDouble(dataPoint.getFoldChange());
+            size++;
+        }
+
+        /**
+         * Assembles the target file from the spool files. The target
+         * file is written to a temp file and then moved into place, so
+         * that a concurrent reader never maps a partially written file.
+         *
+         * @throws IOException if the target file could not be written
+         */
+        public void finish() throws IOException {
+            closeSpools();
+            File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+            try (FileChannel out = FileChannel.open(tmp.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                int columnsOffset = columnsOffset(symbolsLength);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+                header.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(symbolsLength);
+                header.flip();
+                while (header.hasRemaining()) {
+                    out.write(header);
+                }
+                long position = HEADER_LENGTH;
+                position += transfer(symbolsFile, out, position);
+                // Write the padding explicitly, since a channel transfer
+                // does not extend the file past its current size.
+                ByteBuffer padding = ByteBuffer.allocate((int) (columnsOffset - position));
+                while (padding.hasRemaining()) {
+                    position += out.write(padding, position);
+                }
+                position += transfer(pvaluesFile, out, position);
+                transfer(foldChangesFile, out, position);
+            }
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Could not rename " + tmp + " to " + file);
+            }
+            deleteSpools();
+        }
+
+        /**
+         * Discards the spool files. This method has no effect after
+         * {@link #finish()}.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closeSpools();
+                deleteSpools();
+            }
+        }
+
+        private void closeSpools() throws IOException {
+            closed = true;
+            try {
+                symbols.close();
+                pvalues.close();
+            } finally {
+                foldChanges.close();
+            }
+        }
+
+        private void deleteSpools() {
+            symbolsFile.delete();
+            pvaluesFile.delete();
+            foldChangesFile.delete();
+        }
+
+        private static DataOutputStream open(File file) throws IOException {
+            return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        }
+
+        private static long transfer(File source, FileChannel target, long position)
+                throws IOException {
+            try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+                long size = in.size();
+                long done = 0;
+                while (done < size) {
+                    done += target.transferFrom(in, position + done, size - done);
+                }
+                return size;
+            }
+        }
+
+    }
+
+    /**
+     * @param file the file to check
+     * @return whether the file is a columnar data points file
+     */
+    public static boolean isColumnar(File file) {
+        return file.getName().endsWith(FILE_EXTENSION);
+    }
+
+    private static int columnsOffset(int symbolsLength) {
+        int end = HEADER_LENGTH + symbolsLength;
+        return (end + 7) & ~7;
+    }
+
+    @Override
+    public DataPoint get(int index) {
+        DataPoint dataPoint = new DataPoint();
+        dataPoint.setSymbol(getSymbol(index));
+        dataPoint.setPvalue(getPvalue(index));
+        dataPoint.setFoldChange(getFoldChange(index));
+        return dataPoint;
+    }
+
+    @Override
+    public int size() {
+        return symbolOffsets.length;
+    }
+
+    /**
+     * @param index the row index
+     * @return the row symbol, which is decoded on each call
+     */
+    public String getSymbol(int index) {
+        int offset = symbolOffsets[index];
+        int length = buffer.getShort(offset) & 0xFFFF;
+        if (length == NULL_SYMBOL) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer symbol = buffer.duplicate();
+        symbol.position(offset + 2);
+        symbol.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param index the row index
+     * @return the row pvalue
+     */
+    public double getPvalue(int index) {
+        checkIndex(index);
+        return buffer.getDouble(pvaluesOffset + 8 * index);
+    }
+
+    /**
+     * @param index the row index
+     * @return the row fold change
+     */
+    public double getFoldChange(int index) {
+        checkIndex(index);
+        return buffer.getDouble(foldChangesOffset + 8 * index);
+    }
+
+    /**
+     * @return the columnar content length in bytes
+     */
+    public int getByteLength() {
+        return buffer.capacity();
+    }
+
+    private void checkIndex(int index) {
+        // The column buffers do not bound a row index.
+        if (index < 0 || index >= symbolOffsets.length) {
+            throw new IndexOutOfBoundsException("Row index: " + index);
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+package org.reactome.nursa.dao;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import org.reactome.nursa.controller.NursaException;
+
+/**
+ * Lazily iterates over the SPP data point pages.
+ *
+ * The first page is fetched on the first advance. Each time a page
+ * is consumed, the following page is fetched in the background, so
+ * that at most the current page and the next page are held in memory.
+ *
+ * @param <T> the row type
+ */
+class DataPointPageSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+    private static final String FETCH_HALTED_ERROR_MSG = "Fetching data points halted for dataset: ";
+
+    /**
+     * A fetched page.
+     *
+     * @param <T> the row type
+     */
+    static class Page<T> {
+        final List<T> rows;
+
+        /** The next page start id, or -1 if this is the last page. */
+        final int nextStartId;
+
+        Page(List<T> rows, int nextStartId) {
+            this.rows = rows;
+            this.nextStartId = nextStartId;
+        }
+    }
+
+    private final String doi;
+
+    private final IntFunction<Page<T>> fetcher;
+
+    private final ExecutorService executor;
+
+    private Iterator<T> current = Collections.emptyIterator();
+
+    /** The next page fetch, or null if there are no more pages. */
+    private Future<Page<T>> next;
+
+    private boolean started;
+
+    /**
+     * @param doi the dataset DOI
+     * @param fetcher the {start id: page} function
+     * @param executor the background page fetch executor
+     */
+    DataPointPageSpliterator(String doi, IntFunction<Page<T>> fetcher,
+            ExecutorService executor) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        this.doi = doi;
+        this.fetcher = fetcher;
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (!started) {
+            started = true;
+            setCurrent(fetcher.apply(0));
+        }
+        while (!current.hasNext()) {
+            if (next == null) {
+                return false;
+            }
+            setCurrent(await(next));
+        }
+        action.accept(current.next());
+        return true;
+    }
+
+    /**
+     * Cancels the background fetch, if any.
+     */
+    void cancel() {
+        if (next != null) {
+            next.cancel(true);
+            next = null;
+        }
+    }
+
+    private void setCurrent(Page<T> page) {
+        current = page.rows.iterator();
+        int startId = page.nextStartId;
+        next = startId < 0 ? null : executor.submit(() -> fetcher.apply(startId));
+    }
+
+    private Page<T> await(Future<Page<T>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            cancel();
+            // Bail if killed.
+            throw new NursaException(FETCH_HALTED_ERROR_MSG + doi);
+        } catch (ExecutionException e) {
+            next = null;
+            Throwable cause = e.getCause();
+            if (cause instanceof NursaException) {
+                throw (NursaException) cause;
+            }
+            if (cause instanceof InterruptedException) {
+                throw new NursaException(FETCH_HALTED_ERROR_MSG + doi);
+            }
+            throw new NursaException(FETCH_HALTED_ERROR_MSG + doi, e);
+        }
+    }
+
+}
@@ -0,0 +1,197 @@
+package org.reactome.nursa.dao;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.reactome.nursa.controller.NursaException;
+import org.reactome.nursa.model.DataPoint;
+import org.reactome.nursa.model.DataSet;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Streams a dataset's data points to the per-experiment cache files
+ * as the rows arrive.
+ *
+ * Each experiment has an open incremental writer, so memory does not
+ * grow with the dataset size. The experiment files are written to temp
+ * files which are moved into place by {@link #commit(DataSet)}, followed
+ * by the dataset file itself. Closing an uncommitted writer discards
+ * the temp files.
+ */
+public class DataPointsWriter implements Closeable {
+
+    private static final String EXPERIMENT_CACHE_ERROR_MSG = "Nursa experiment could not be cached in ";
+
+    private static final String TMP_EXTENSION = ".tmp";
+
+    /** The incremental writer for a single experiment. */
+    private interface ExperimentWriter {
+        void write(DataPoint dataPoint) throws IOException;
+        void finish() throws IOException;
+        void abort();
+    }
+
+    private final NursaFileCache fileCache;
+
+    private final File expsDir;
+
+    private final boolean isColumnar;
+
+    private final ObjectWriter dataPointWriter;
+
+    /** The {experiment id: open writer} map. */
+    private final Map<Integer, ExperimentWriter> writers =
+            new HashMap<Integer, ExperimentWriter>();
+
+    private boolean committed;
+
+    DataPointsWriter(NursaFileCache fileCache, File expsDir, boolean isColumnar,
+            ObjectWriter dataPointWriter) {
+        this.fileCache = fileCache;
+        this.expsDir = expsDir;
+        this.isColumnar = isColumnar;
+        this.dataPointWriter = dataPointWriter;
+    }
+
+    /**
+     * Appends the data point to the given experiment file.
+     *
+     * @param experimentId the experiment id
+     * @param dataPoint the data point
+     * @throws NursaException if the data point could not be written
+     */
+    public void write(Integer experimentId, DataPoint dataPoint) {
+        ExperimentWriter writer = writers.get(experimentId);
+        try {
+            if (writer == null) {
+                writer = open(experimentId);
+                writers.put(experimentId, writer);
+            }
+            writer.write(dataPoint);
+        } catch (IOException e) {
+            throw new NursaException(EXPERIMENT_CACHE_ERROR_MSG + expsDir, e);
+        }
+    }
+
+    /**
+     * Finalizes the experiment files and writes the dataset file.
+     *
+     * @param dataset the dataset
+     * @throws NursaException if a file could not be written
+     */
+    public void commit(DataSet dataset) {
+        for (Map.Entry<Integer, ExperimentWriter> entry: writers.entrySet()) {
+            try {
+                entry.getValue().finish();
+            } catch (IOException e) {
+                throw new NursaException(EXPERIMENT_CACHE_ERROR_MSG +
+                        getFile(entry.getKey(), isColumnar), e);
+            }
+            if (!isColumnar) {
+                // Remove a stale columnar file, since it takes precedence.
+                getFile(entry.getKey(), true).delete();
+            }
+        }
+        // The displayable files are rewritten from the new data points.
+        File[] displayable = new File(expsDir, NursaFileCache.DISPLAYABLE_DIR_NAME).listFiles();
+        if (displayable != null) {
+            for (File file: displayable) {
+                file.delete();
+            }
+        }
+        committed = true;
+        fileCache.writeDataSet(dataset);
+    }
+
+    /**
+     * @return the ids of the experiments which have data points
+     */
+    public Set<Integer> getExperimentIds() {
+        return writers.keySet();
+    }
+
+    /**
+     * Discards the temp files of an uncommitted writer.
+     */
+    @Override
+    public void close() {
+        if (!committed) {
+            writers.values().forEach(ExperimentWriter::abort);
+        }
+    }
+
+    private ExperimentWriter open(Integer experimentId) throws IOException {
+        File file = getFile(experimentId, isColumnar);
+        return isColumnar ? openColumnar(file) : openJson(file);
+    }
+
+    private ExperimentWriter openColumnar(File file) throws IOException {
+        ColumnarDataPoints.StreamWriter writer = new ColumnarDataPoints.StreamWriter(file);
+        return new ExperimentWriter() {
+            @Override
+            public void write(DataPoint dataPoint) throws IOException {
+                writer.write(dataPoint);
+            }
+
+            @Override
+            public void finish() throws IOException {
+                writer.finish();
+            }
+
+            @Override
+            public void abort() {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    // Nothing more can be done.
+                }
+            }
+        };
+    }
+
+    private ExperimentWriter openJson(File file) throws IOException {
+        File tmp = new File(file.getParentFile(), file.getName() + TMP_EXTENSION);
+        JsonGenerator generator = dataPointWriter.getFactory()
+                .createGenerator(new BufferedWriter(new FileWriter(tmp)));
+        generator.writeStartArray();
+        return new ExperimentWriter() {
+            @Override
+            public void write(DataPoint dataPoint) throws IOException {
+                dataPointWriter.writeValue(generator, dataPoint);
+            }
+
+            @Override
+            public void finish() throws IOException {
+                generator.writeEndArray();
+                generator.close();
+                if (!tmp.renameTo(file)) {
+                    throw new IOException("Could not rename " + tmp + " to " + file);
+                }
+            }
+
+            @Override
+            public void abort() {
+                try {
+                    generator.close();
+                } catch (IOException e) {
+                    // Nothing more can be done.
+                }
+                tmp.delete();
+            }
+        };
+    }
+
+    private File getFile(Integer experimentId, boolean columnar) {
+        String extension = columnar ? ColumnarDataPoints.FILE_EXTENSION : NursaFileCache.JSON_EXTENSION;
+        return new File(expsDir, experimentId + extension);
+    }
+
+}
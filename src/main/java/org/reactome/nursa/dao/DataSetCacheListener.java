@@ -0,0 +1,16 @@
+package org.reactome.nursa.dao;
+
+import org.reactome.nursa.model.DataSet;
+
+/**
+ * Callback which is notified when a dataset is written to the
+ * {@link NursaFileCache}.
+ */
+public interface DataSetCacheListener {
+
+    /**
+     * @param dataset the newly cached dataset
+     */
+    void datasetCached(DataSet dataset);
+
+}
@@ -0,0 +1,603 @@
+package org.reactome.nursa.dao;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.log4j.Logger;
+import org.reactome.nursa.controller.NursaException;
+import org.reactome.nursa.geneset.GeneSetIndex;
+import org.reactome.nursa.metrics.Histogram;
+import org.reactome.nursa.metrics.MetricsRegistry;
+import org.reactome.nursa.model.DataPoint;
+import org.reactome.nursa.model.DataSet;
+import org.reactome.nursa.model.DisplayableDataPoint;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * The local Nursa file cache.
+ *
+ * The cache is organized as follows:
+ * <pre>
+ * sync-watermark
+ * sync-retries.json
+ * datasets/
+ *     &lt;registrant&gt;/
+ *         &lt;id&gt;/
+ *             &lt;id&gt;.json
+ *             experiments/
+ *                 &lt;experimentId&gt;.json
+ *                 &lt;experimentId&gt;.columns
+ *                 displayable/
+ *                     &lt;experimentId&gt;.&lt;gene set version&gt;.json
+ * </pre>
+ * where the DOI is &lt;registrant&gt;/&lt;id&gt; and the sync watermark
+ * file holds the date of the last successful SPP delta sync. The sync
+ * retries file holds the {DOI: failed attempts} of the datasets which
+ * the delta sync could not ingest. An experiment data points
+ * file is either a JSON {@link DataPoint} array or a
+ * {@link ColumnarDataPoints} file. The columnar file is preferred
+ * when both are present. The displayable file is the JSON
+ * {@link DisplayableDataPoint} array served for the experiment with
+ * the given Reactome gene set version. The dataset and displayable
+ * JSON files have a gzip copy with the {@link #GZIP_EXTENSION}
+ * extension, which is served to clients that accept gzip.
+ */
+@Component
+public class NursaFileCache {
+
+    private static final String CACHE_FILE_READ_ERROR_MSG = "Could not read Nursa cache file: ";
+
+    private static final String EXPERIMENT_CACHE_ERROR_MSG = "Nursa experiment could not be cached in ";
+
+    private static final String CACHE_DIRECTORY_ERROR_MSG = "Could not create Nursa experiment cache directory ";
+
+    private static final String CACHE_FILE_NOT_FOUND_MSG = "Nursa cache file not found: ";
+
+    private static final String DATASETS_DIR = "datasets";
+
+    private static final String SYNC_WATERMARK_FILE_NAME = "sync-watermark";
+
+    private static final String SYNC_RETRIES_FILE_NAME = "sync-retries.json";
+
+    /** The sync watermark date format. */
+    private static final String WATERMARK_FORMAT = "yyyy-MM-dd";
+
+    private static final String EXPERIMENTS_DIR_NAME = "experiments";
+
+    static final String JSON_EXTENSION = ".json";
+
+    static final String DISPLAYABLE_DIR_NAME = "displayable";
+
+    /** The extension of the gzip copy of a served JSON file. */
+    public static final String GZIP_EXTENSION = ".gz";
+
+    private static final String TMP_EXTENSION = ".tmp";
+
+    /** The {@link #dataPointsFormat} value for columnar data points files. */
+    private static final String COLUMNAR_FORMAT = "columnar";
+
+    private static final Logger logger = Logger.getLogger(NursaFileCache.class);
+
+    @Value("${nursa.cache.dir}")
+    private String NURSA_CACHE_DIR;
+
+    /** The format of newly written data points files. */
+    @Value("${nursa.cache.datapoints.format}")
+    private String dataPointsFormat;
+
+    // The JSON mapper is thread-safe once configured.
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // The streamed data points are flushed by the writer, not per row.
+    private final ObjectWriter dataPointWriter = mapper.writerFor(DataPoint.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    private final ObjectWriter displayableWriter = mapper.writerFor(DisplayableDataPoint.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    @Autowired
+    private MetricsRegistry metrics;
+
+    private final List<DataSetCacheListener> listeners =
+            new CopyOnWriteArrayList<DataSetCacheListener>();
+
+    /**
+     * @param listener the callback to notify when a dataset is cached
+     */
+    public void addListener(DataSetCacheListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param doi the dataset DOI
+     * @return whether the dataset is cached
+     */
+    public boolean hasDataSet(String doi) {
+        return getDataSetFile(doi).exists();
+    }
+
+    /**
+     * Reads the cached dataset.
+     *
+     * @param doi the dataset DOI
+     * @return the dataset
+     * @throws NursaException if the dataset file could not be read
+     */
+    public DataSet readDataSet(String doi) {
+        long start = System.nanoTime();
+        File file = getDataSetFile(doi);
+        FileReader reader;
+        try {
+            reader = new FileReader(file);
+        } catch (FileNotFoundException e) {
+            String message = "Cached dataset file not found: " + file;
+            throw new NursaException(message, e);
+        }
+        try {
+            return mapper.readValue(reader, DataSet.class);
+        } catch (Exception e) {
+            String message =
+                    "Could not read the cached dataset file: " + file;
+            throw new NursaException(message, e);
+        } finally {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                String message =
+                        "Could not close the cached dataset file: " + file;
+                throw new NursaException(message, e);
+            } finally {
+                getFileTimer("read_dataset").observeSince(start);
+            }
+        }
+    }
+
+    /**
+     * Opens a writer which streams the given dataset's data points to
+     * the experiment files. The dataset file is written when the
+     * writer is committed.
+     *
+     * @param doi the dataset DOI
+     * @return the data points writer
+     * @throws NursaException if the experiments directory could not
+     *      be created
+     */
+    public DataPointsWriter openDataPointsWriter(String doi) {
+        File expsDir = getExperimentsDirectory(doi);
+        if (!expsDir.exists()) {
+            try {
+                expsDir.mkdirs();
+            }
+            catch (SecurityException e) {
+                String message = CACHE_DIRECTORY_ERROR_MSG + expsDir;
+                throw new NursaException(message, e);
+            }
+        }
+        boolean isColumnar = COLUMNAR_FORMAT.equals(dataPointsFormat);
+        return new DataPointsWriter(this, expsDir, isColumnar, dataPointWriter);
+    }
+
+    /**
+     * Writes the dataset file and notifies the
+     * {@link DataSetCacheListener}s. The dataset file is written
+     * after the experiment files, so that a cached dataset always
+     * has its data points.
+     *
+     * @param dataset the dataset to cache
+     * @throws NursaException if the file could not be written
+     */
+    void writeDataSet(DataSet dataset) {
+        long start = System.nanoTime();
+        String doi = dataset.getDoi();
+        File file = getDataSetFile(doi);
+        file.getParentFile().mkdirs();
+        try {
+            File tmp = new File(file.getParentFile(), file.getName() + TMP_EXTENSION);
+            FileWriter writer = new FileWriter(tmp);
+            try {
+                mapper.writeValue(writer, dataset);
+            } finally {
+                writer.close();
+            }
+            moveWithGzipCopy(tmp, file);
+        } catch (Exception e) {
+            String message =
+                    "Could not write the cached dataset file: " + file;
+            throw new NursaException(message, e);
+        }
+        getFileTimer("write_dataset").observeSince(start);
+        for (DataSetCacheListener listener: listeners) {
+            listener.datasetCached(dataset);
+        }
+    }
+
+    /**
+     * Reads the cached experiment data points.
+     *
+     * @param doi the dataset DOI
+     * @param experimentId the experiment id
+     * @return the data points
+     * @throws NursaException if the data points file is missing or
+     *      could not be read
+     */
+    public List<DataPoint> readDataPoints(String doi, int experimentId) {
+        long start = System.nanoTime();
+        try {
+            return readExperimentFile(doi, experimentId);
+        } finally {
+            getFileTimer("read_datapoints").observeSince(start);
+        }
+    }
+
+    private List<DataPoint> readExperimentFile(String doi, int experimentId) {
+        File expsDir = getExperimentsDirectory(doi);
+        File columnar = new File(expsDir, experimentId + ColumnarDataPoints.FILE_EXTENSION);
+        if (columnar.exists()) {
+            try {
+                return ColumnarDataPoints.read(columnar);
+            } catch (IOException e) {
+                throw new NursaException(CACHE_FILE_READ_ERROR_MSG + columnar, e);
+            }
+        }
+        File file = new File(expsDir, experimentId + JSON_EXTENSION);
+        if (!file.exists()) {
+            // Should never occur: the experiment file is populated with
+            // data points when the the dataset is cached.
+            throw new NursaException(CACHE_FILE_NOT_FOUND_MSG + file);
+        }
+        try {
+            return readJsonDataPoints(file);
+        } catch (Exception e) {
+            throw new NursaException(CACHE_FILE_READ_ERROR_MSG + file, e);
+        }
+    }
+
+    /**
+     * Returns the experiment displayable data points file for the given
+     * gene set index. The file is written on demand from the experiment
+     * data points, and replaces the file of a prior gene set version.
+     *
+     * @param doi the dataset DOI
+     * @param experimentId the experiment id
+     * @param index the Reactome gene set index
+     * @return the displayable data points JSON file
+     * @throws NursaException if the file could not be written
+     */
+    public File getDisplayableFile(String doi, int experimentId, GeneSetIndex index) {
+        File dir = new File(getExperimentsDirectory(doi), DISPLAYABLE_DIR_NAME);
+        String prefix = experimentId + ".";
+        File file = new File(dir, prefix + getVersionTag(index) + JSON_EXTENSION);
+        if (file.exists()) {
+            return file;
+        }
+        List<DataPoint> dataPoints = readDataPoints(doi, experimentId);
+        long start = System.nanoTime();
+        try {
+            writeDisplayable(dataPoints, index, file);
+        } catch (IOException e) {
+            throw new NursaException(EXPERIMENT_CACHE_ERROR_MSG + file, e);
+        }
+        getFileTimer("write_displayable").observeSince(start);
+        // Remove the files of the prior gene set versions.
+        // The current version file name prefixes its gzip copy and the
+        // temp files of concurrent writers.
+        File[] stale = dir.listFiles((d, name) -> name.startsWith(prefix) &&
+                !name.startsWith(file.getName()) && !name.endsWith(TMP_EXTENSION));
+        if (stale != null) {
+            for (File staleFile: stale) {
+                staleFile.delete();
+            }
+        }
+
+        return file;
+    }
+
+    private void writeDisplayable(List<DataPoint> dataPoints, GeneSetIndex index,
+            File file) throws IOException {
+        file.getParentFile().mkdirs();
+        // Concurrent writers each write their own temp file, which
+        // is then atomically moved into place.
+        File tmp = File.createTempFile(file.getName(), TMP_EXTENSION, file.getParentFile());
+        int reactomeCnt = 0;
+        try {
+            try (JsonGenerator generator = displayableWriter.getFactory().createGenerator(
+                    new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                generator.writeStartArray();
+                for (DataPoint dataPoint: dataPoints) {
+                    boolean isReactome = index.contains(dataPoint.getSymbol());
+                    if (isReactome) {
+                        reactomeCnt++;
+                    }
+                    displayableWriter.writeValue(generator,
+                            new DisplayableDataPoint(dataPoint, isReactome));
+                }
+                generator.writeEndArray();
+            }
+            moveWithGzipCopy(tmp, file);
+        } finally {
+            tmp.delete();
+        }
+        logger.info("Wrote " + file + " with " + dataPoints.size() +
+                " data points, of which " + reactomeCnt + " are in Reactome.");
+    }
+
+    /**
+     * Moves the written temp file into place along with a gzip copy.
+     * The copy is moved first, so that it is never older than the file.
+     *
+     * @param tmp the written temp file
+     * @param file the target file
+     * @throws IOException if the file could not be compressed or moved
+     */
+    private static void moveWithGzipCopy(File tmp, File file) throws IOException {
+        File gzip = new File(file.getPath() + GZIP_EXTENSION);
+        File gzipTmp = new File(tmp.getPath() + GZIP_EXTENSION);
+        try {
+            try (OutputStream out = new GZIPOutputStream(new FileOutputStream(gzipTmp))) {
+                Files.copy(tmp.toPath(), out);
+            }
+            move(gzipTmp, gzip);
+        } finally {
+            gzipTmp.delete();
+        }
+        move(tmp, file);
+    }
+
+    private static void move(File source, File target) throws IOException {
+        Files.move(source.toPath(), target.toPath(),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @param operation the cache file operation label
+     * @return the cache file time histogram for the operation
+     */
+    private Histogram getFileTimer(String operation) {
+        return metrics.timer("nursa_cache_file_duration_seconds",
+                "The cache file read and write time by operation.", "operation", operation);
+    }
+
+    /**
+     * @return the gene set version as a file name component
+     */
+    private static String getVersionTag(GeneSetIndex index) {
+        return index.getVersion().replaceAll("[^\\w.@-]", "_");
+    }
+
+    /**
+     * @return the DOIs of the datasets in the cache
+     * @throws NursaException if the cache has no DOI authority directory
+     */
+    public List<String> getDataSetDois() {
+        File datasetsDir = new File(NURSA_CACHE_DIR, DATASETS_DIR);
+        File[] registrantDirs = datasetsDir.listFiles();
+        File authorityDir = registrantDirs == null ? null : Stream.of(registrantDirs)
+            .filter(file -> file.getName().matches("\\d+\\.\\d+"))
+            .findFirst().orElse(null);
+        if (authorityDir == null) {
+            throw new NursaException("Dataset cache missing DOI authority directory");
+        }
+        String authority = authorityDir.getName();
+        return Stream.of(authorityDir.listFiles())
+            .filter(File::isDirectory)
+            .map(File::getName)
+            .map(datasetName -> authority + "/" + datasetName)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Reads the selected cached datasets. A dataset file which cannot
+     * be read is logged and skipped.
+     *
+     * @param filter the DOI selection predicate, which is applied just
+     *      before the dataset is read
+     * @param consumer the dataset callback
+     * @return the number of datasets read
+     */
+    public int readDataSets(Predicate<String> filter, Consumer<DataSet> consumer) {
+        List<String> dois;
+        try {
+            dois = getDataSetDois();
+        } catch (NursaException e) {
+            logger.warn("No cached datasets: " + e.getMessage());
+            return 0;
+        }
+        int count = 0;
+        for (String doi: dois) {
+            if (filter.test(doi) && hasDataSet(doi)) {
+                try {
+                    consumer.accept(readDataSet(doi));
+                    count++;
+                } catch (NursaException e) {
+                    logger.error("Cached dataset " + doi + " could not be read", e);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the last successful SPP delta sync date, or null if
+     *      there is no watermark
+     * @throws NursaException if the watermark file could not be read
+     */
+    public Date readSyncWatermark() {
+        File file = new File(NURSA_CACHE_DIR, SYNC_WATERMARK_FILE_NAME);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            String content = new String(Files.readAllBytes(file.toPath()),
+                    StandardCharsets.UTF_8).trim();
+            return new SimpleDateFormat(WATERMARK_FORMAT).parse(content);
+        } catch (IOException | ParseException e) {
+            throw new NursaException(CACHE_FILE_READ_ERROR_MSG + file, e);
+        }
+    }
+
+    /**
+     * Replaces the sync watermark. The watermark file is written to a
+     * temp file which is atomically moved into place, so a crash never
+     * leaves a partial watermark.
+     *
+     * @param watermark the last successful SPP delta sync date
+     * @throws NursaException if the watermark file could not be written
+     */
+    public void writeSyncWatermark(Date watermark) {
+        File file = new File(NURSA_CACHE_DIR, SYNC_WATERMARK_FILE_NAME);
+        File tmp = new File(NURSA_CACHE_DIR, SYNC_WATERMARK_FILE_NAME + TMP_EXTENSION);
+        String content = new SimpleDateFormat(WATERMARK_FORMAT).format(watermark);
+        try {
+            file.getParentFile().mkdirs();
+            Files.write(tmp.toPath(), content.getBytes(StandardCharsets.UTF_8));
+            move(tmp, file);
+        } catch (IOException e) {
+            throw new NursaException("Could not write the sync watermark file: " + file, e);
+        }
+    }
+
+    /**
+     * @return the {DOI: failed attempts} of the datasets to retry in
+     *      the next SPP delta sync
+     * @throws NursaException if the retries file could not be read
+     */
+    public Map<String, Integer> readSyncRetries() {
+        File file = new File(NURSA_CACHE_DIR, SYNC_RETRIES_FILE_NAME);
+        if (!file.exists()) {
+            return new LinkedHashMap<String, Integer>();
+        }
+        try (FileReader reader = new FileReader(file)) {
+            return mapper.readValue(reader, new TypeReference<LinkedHashMap<String, Integer>>(){});
+        } catch (IOException e) {
+            throw new NursaException(CACHE_FILE_READ_ERROR_MSG + file, e);
+        }
+    }
+
+    /**
+     * Replaces the sync retries. As with the watermark, the file is
+     * written to a temp file which is atomically moved into place.
+     *
+     * @param retries the {DOI: failed attempts} of the datasets to
+     *      retry in the next SPP delta sync
+     * @throws NursaException if the retries file could not be written
+     */
+    public void writeSyncRetries(Map<String, Integer> retries) {
+        File file = new File(NURSA_CACHE_DIR, SYNC_RETRIES_FILE_NAME);
+        File tmp = new File(NURSA_CACHE_DIR, SYNC_RETRIES_FILE_NAME + TMP_EXTENSION);
+        try {
+            file.getParentFile().mkdirs();
+            mapper.writeValue(tmp, retries);
+            move(tmp, file);
+        } catch (IOException e) {
+            throw new NursaException("Could not write the sync retries file: " + file, e);
+        }
+    }
+
+    /**
+     * Converts the cached JSON experiment data points files which do
+     * not yet have a columnar counterpart to the columnar format.
+     * The JSON files are retained.
+     *
+     * @return the number of converted files
+     * @throws NursaException if a file could not be converted
+     */
+    public int migrateToColumnar() {
+        int count = 0;
+        for (String doi: getDataSetDois()) {
+            File[] jsonFiles = getExperimentsDirectory(doi)
+                    .listFiles((dir, name) -> name.endsWith(JSON_EXTENSION));
+            if (jsonFiles == null) {
+                continue;
+            }
+            for (File jsonFile: jsonFiles) {
+                String baseName = jsonFile.getName().substring(0,
+                        jsonFile.getName().length() - JSON_EXTENSION.length());
+                File columnar = new File(jsonFile.getParentFile(),
+                        baseName + ColumnarDataPoints.FILE_EXTENSION);
+                if (columnar.exists()) {
+                    continue;
+                }
+                try {
+                    writeColumnar(readJsonDataPoints(jsonFile), columnar);
+                } catch (IOException e) {
+                    throw new NursaException(EXPERIMENT_CACHE_ERROR_MSG + columnar, e);
+                }
+                count++;
+            }
+        }
+        logger.info("Converted " + count + " data points files to the columnar format.");
+
+        return count;
+    }
+
+    private List<DataPoint> readJsonDataPoints(File file) throws IOException {
+        FileReader reader = new FileReader(file);
+        try {
+            return mapper.readValue(reader, new TypeReference<List<DataPoint>>(){});
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void writeColumnar(List<DataPoint> dataPoints, File file) throws IOException {
+        // Write to a temp file and move it into place, so that a
+        // concurrent reader never maps a partially written file.
+        File tmp = new File(file.getParentFile(), file.getName() + TMP_EXTENSION);
+        ColumnarDataPoints.write(dataPoints, tmp);
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not rename " + tmp + " to " + file);
+        }
+    }
+
+    /**
+     * @param doi the dataset DOI
+     * @return the dataset JSON file, which might not exist
+     */
+    public File getDataSetFile(String doi) {
+        File dir = getDatasetDirectory(doi);
+        String dsFile = dir.getName() + JSON_EXTENSION;
+        return new File(dir, dsFile);
+    }
+
+    private File getExperimentsDirectory(String doi) {
+        return new File(getDatasetDirectory(doi), EXPERIMENTS_DIR_NAME);
+    }
+
+    private File getDatasetDirectory(String doi) {
+        String[] relPath = doi.split("/");
+        String registrant = relPath[0];
+        String objId = relPath[1];
+        return Paths.get(NURSA_CACHE_DIR, DATASETS_DIR, registrant, objId).toFile();
+    }
+
+}
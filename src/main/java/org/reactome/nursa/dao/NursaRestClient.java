@@ -1,23 +1,30 @@
 package org.reactome.nursa.dao;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
-import org.apache.http.client.fluent.Request;
+import java.util.stream.StreamSupport;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
 import org.apache.http.client.utils.URIBuilder;
 import org.reactome.nursa.controller.NursaException;
+import org.reactome.nursa.metrics.Histogram;
+import org.reactome.nursa.metrics.MetricsRegistry;
+import org.reactome.nursa.metrics.RequestTimer;
 import org.reactome.nursa.model.Experiment;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -31,10 +38,6 @@ public class NursaRestClient {
 
     private static final String EMPTY_DATASET_ERROR_MSG = "No datapoints in the dataset: ";
 
-    private static final String FETCH_HALTED_ERROR_MSG = "Fetching data points halted for dataset: ";
-
-    private static final String REST_ERROR_MSG = "REST call unsuccessful: ";
-
     private static final String URI_ERROR_MSG = "Malformed URI for path: ";
 
     private static final String JSON_ERROR_MSG = "Parsing JSON unsuccessful for REST call: ";
@@ -46,6 +49,10 @@ public class NursaRestClient {
      */
     private static final String DEF_ADDED_SINCE = "20100101";
 
+    @Value("${nursa.scheme}")
+    private String scheme;
+
+    /** The SPP host, optionally with a port. */
     @Value("${nursa.host}")
     private String host;
     
@@ -66,6 +73,37 @@ public class NursaRestClient {
     
     @Value("${nursa.api.query.type}")
     private String queryType;
+
+    @Autowired
+    private SppTransport transport;
+
+    @Autowired
+    private MetricsRegistry metrics;
+
+    // The data points next page fetch threads.
+    private ExecutorService prefetcher;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        prefetcher = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "nursa-prefetch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        prefetcher.shutdownNow();
+    }
+
+    /**
+     * @return the number of SPP REST requests currently in progress
+     */
+    public int getRequestsInFlight() {
+        return transport.getRequestsInFlight();
+    }
     
     /**
      * Calls the SPP REST API to retrieve the given dataset meta-data.
@@ -79,13 +117,13 @@ public class NursaRestClient {
      * @throws URISyntaxException
      * @throws IOException
      */
-    public Stream<Map<String, Object>> getDataSet(String doi) {
+    public Stream<SppCodec.DataSetRow> getDataSet(String doi) {
         Map<String, String> params = new HashMap<>();
         params.put("doi", doi);
         // Must have a default addedsince, even if it is meaningless.
         params.put("addedsince", DEF_ADDED_SINCE);
 
-        return getDocument(datasetsEndPoint, params);
+        return getDataSets(params);
     }
     
     /**
@@ -98,18 +136,41 @@ public class NursaRestClient {
      * @throws URISyntaxException
      * @throws IOException
      */
-    public Stream<Map<String, Object>> getDataSets(Date after) {
+    public Stream<SppCodec.DataSetRow> getDataSets(Date after) {
         Map<String, String> params = new HashMap<>();
         SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd");
         String dateParam = format.format(after);    
         params.put("addedsince", dateParam);
-        Stream<Map<String, Object>> document = getDocument(datasetsEndPoint, params);
-        Stream.of(document);
-        
-        return document;
+
+        return getDataSets(params);
+    }
+
+    private Stream<SppCodec.DataSetRow> getDataSets(Map<String, String> params) {
+        URI uri = getUri(datasetsEndPoint, params);
+        byte[] content = get(datasetsEndPoint, uri);
+        long start = System.nanoTime();
+        RequestTimer.Stage stage = RequestTimer.stage("spp-decode");
+        try {
+            return SppCodec.readDataSets(content).stream();
+        } catch (IOException e) {
+            throw new NursaException(JSON_ERROR_MSG + uri, e);
+        } finally {
+            stage.close();
+            getDecodeTimer(datasetsEndPoint).observeSince(start);
+        }
     }
 
-    public Stream<Map<String, Object>> getDataPoints(String doi) {
+    /**
+     * Calls the SPP REST API to retrieve the given dataset data points.
+     * 
+     * The data points are fetched in pages as the stream is consumed.
+     * The caller should close the stream if it is not fully consumed,
+     * in order to cancel the background page fetch.
+     * 
+     * @param doi the dataset DOI
+     * @return the lazy data point rows stream
+     */
+    public Stream<SppCodec.DataPointRow> getDataPoints(String doi) {
         Map<String, String> params = new HashMap<>();
         params.put("queryValue", doi);
         params.put("omicsType", omicsType);
@@ -118,94 +179,114 @@ public class NursaRestClient {
         params.put("significance", "1.0");
         params.put("countMax", Integer.toString(DATAPOINTS_COUNT_MAX));
         
-        // It would be better to return a lazy-initialized stream
-        // using Stream.iterate with the takeWhile stream operator,
-        // but that requires Java 9. For now, fill a list and
-        // return a stream on that list. A stream return value
-        // leaves open the possibility of a more efficient
-        // implementation in the future.
-        List<Map<String, Object>> datapoints = new ArrayList<Map<String, Object>>();
-        int startId = 0;
-        while (true) {
-            // Important - set the starting record parameter or we will
-            // find ourselves in an infinite loop.
-            params.put("startId", Integer.toString(startId));
-            // Fetch some data points.
-            List<Map<String, Object>> fetched =
-                    getDocument(datapointsEndPoint, params).collect(Collectors.toList());
-            // There must be at least one row returned.
-            if (fetched.isEmpty()) {
-                throw new NursaException(EMPTY_DATASET_ERROR_MSG + doi);
-            }
-            // Sort the fetched rows. Note that, contrary to the SPP
-            // REST documentation as of 04/2019, the rows are not already
-            // in id order.
-            fetched.sort((r1, r2) -> Integer.compare(
-                    ((Number) r1.get("id")).intValue(),
-                    ((Number) r2.get("id")).intValue()));
-            // If fewer records were returned than requested, then we are
-            // done.
-            if (fetched.size() < DATAPOINTS_COUNT_MAX) {
-                datapoints.addAll(fetched);
-                break;
-            }
-            // The last row fetched  will be redundantly retrieved in the
-            // next fetch. We know that there is at least one row at this
-            // point because of the size check above.
-            Map<String, Object> lastRow = fetched.remove(fetched.size() - 1);
-            // The last row id. Note that the id field is only used to
-            // determine the starting row to fetch and is not retained.
-            int lastId = ((Number) lastRow.get("id")).intValue();
-            // Add all but the last fetched rows.
-            datapoints.addAll(fetched);
-            // Prime the next loop iteration.
-            startId = lastId;
-            // Give the SPP REST server a two-second rest.
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                // Bail if killed.
-                throw new NursaException(FETCH_HALTED_ERROR_MSG + doi);
-            }
+        // The pages are fetched lazily, with the next page prefetched
+        // in the background while the current page is consumed. The
+        // transport paces the page requests.
+        DataPointPageSpliterator<SppCodec.DataPointRow> pages =
+                new DataPointPageSpliterator<SppCodec.DataPointRow>(doi,
+                        startId -> fetchDataPointsPage(doi, params, startId),
+                        prefetcher);
+        return StreamSupport.stream(pages, false).onClose(pages::cancel);
+    }
+
+    private DataPointPageSpliterator.Page<SppCodec.DataPointRow> fetchDataPointsPage(
+            String doi, Map<String, String> params, int startId) {
+        // Each page has its own parameters, since the page fetches
+        // run on different threads.
+        Map<String, String> pageParams = new HashMap<>(params);
+        // Important - set the starting record parameter or we will
+        // find ourselves in an infinite loop.
+        pageParams.put("startId", Integer.toString(startId));
+        // Fetch some data points.
+        URI uri = getUri(datapointsEndPoint, pageParams);
+        byte[] content = get(datapointsEndPoint, uri);
+        List<SppCodec.DataPointRow> fetched;
+        long start = System.nanoTime();
+        RequestTimer.Stage stage = RequestTimer.stage("spp-decode");
+        try {
+            fetched = SppCodec.readDataPoints(content);
+        } catch (IOException e) {
+            throw new NursaException(JSON_ERROR_MSG + uri, e);
+        } finally {
+            stage.close();
+            getDecodeTimer(datapointsEndPoint).observeSince(start);
         }
-        
-        // See comment above regarding returning a stream.
-        return datapoints.stream();
+        metrics.counter("nursa_spp_datapoints_parsed_total",
+                "The number of SPP data points parsed.").add(fetched.size());
+        // There must be at least one row returned.
+        if (fetched.isEmpty()) {
+            throw new NursaException(EMPTY_DATASET_ERROR_MSG + doi);
+        }
+        // Sort the fetched rows. Note that, contrary to the SPP
+        // REST documentation as of 04/2019, the rows are not already
+        // in id order.
+        fetched.sort(Comparator.comparingInt(SppCodec.DataPointRow::getId));
+        // If fewer records were returned than requested, then we are
+        // done.
+        if (fetched.size() < DATAPOINTS_COUNT_MAX) {
+            return new DataPointPageSpliterator.Page<SppCodec.DataPointRow>(fetched, -1);
+        }
+        // The last row fetched  will be redundantly retrieved in the
+        // next fetch. We know that there is at least one row at this
+        // point because of the size check above.
+        SppCodec.DataPointRow lastRow = fetched.remove(fetched.size() - 1);
+        // The last row id. Note that the id field is only used to
+        // determine the starting row to fetch and is not retained.
+        int lastId = lastRow.getId();
+
+        return new DataPointPageSpliterator.Page<SppCodec.DataPointRow>(fetched, lastId);
     }
 
-    private Stream<Map<String, Object>> getDocument(String endPoint, Map<String, String> params) {
+    /**
+     * Issues the SPP request, recording the request metrics by end point
+     * and the {@code spp} request stage.
+     *
+     * @param endPoint the SPP end point
+     * @param uri the request URI
+     * @return the response content
+     */
+    private byte[] get(String endPoint, URI uri) {
+        long start = System.nanoTime();
+        RequestTimer.Stage stage = RequestTimer.stage("spp");
+        try {
+            byte[] content = transport.get(uri);
+            metrics.counter("nursa_spp_response_bytes_total",
+                    "The SPP response content bytes by end point.", "endpoint", endPoint)
+                .add(content.length);
+            return content;
+        } catch (RuntimeException e) {
+            metrics.counter("nursa_spp_request_errors_total",
+                    "The number of failed SPP requests by end point.", "endpoint", endPoint)
+                .increment();
+            throw e;
+        } finally {
+            stage.close();
+            metrics.timer("nursa_spp_request_duration_seconds",
+                    "The SPP request latency, including retries, by end point.",
+                    "endpoint", endPoint)
+                .observeSince(start);
+        }
+    }
+
+    private Histogram getDecodeTimer(String endPoint) {
+        return metrics.timer("nursa_spp_decode_duration_seconds",
+                "The SPP response JSON decoding time by end point.", "endpoint", endPoint);
+    }
+
+    private URI getUri(String endPoint, Map<String, String> params) {
         // Make the REST URI.
         String path = servicePath + endPoint;
         URIBuilder builder = new URIBuilder()
-                .setScheme("https")
+                .setScheme(scheme)
                 .setHost(host)
                 .setPath(path)
                 .addParameter("apiKey", apiKey);
         params.forEach(builder::addParameter);
-        URI uri;
         try {
-            uri = builder.build();
+            return builder.build();
         } catch (URISyntaxException e) {
             throw new NursaException(URI_ERROR_MSG + path, e);
         }
-
-        // Stream the REST result.
-        InputStream content;
-        try {
-            content = Request.Get(uri)
-                    .execute()
-                    .returnContent()
-                    .asStream();
-        } catch (IOException e) {
-            throw new NursaException(REST_ERROR_MSG + uri, e);
-        }
-
-        Reader reader = new InputStreamReader(content);
-        try {
-            return JsonHelper.parse(reader);
-        } catch (IOException e) {
-            throw new NursaException(JSON_ERROR_MSG + uri, e);
-        }
     }
 
 }
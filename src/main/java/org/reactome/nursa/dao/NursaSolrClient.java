@@ -1,6 +1,7 @@
 package org.reactome.nursa.dao;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Optional;
 
 import org.apache.http.auth.AuthScope;
@@ -13,7 +14,12 @@ import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CursorMarkParams;
 import org.reactome.nursa.controller.PreemptiveAuthInterceptor;
+import org.reactome.nursa.metrics.MetricsRegistry;
+import org.reactome.nursa.metrics.RequestTimer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -27,8 +33,13 @@ import org.springframework.stereotype.Component;
 @Component
 public class NursaSolrClient {
 
+    private static final String DOI_FIELD = "doi";
+
     private final HttpSolrClient solrClient;
 
+    @Autowired
+    private MetricsRegistry metrics;
+
     @Autowired
     public NursaSolrClient(@Value("${solr.host}") String host,
                            @Value("${solr.user}") String user,
@@ -52,13 +63,22 @@ public class NursaSolrClient {
      * 
      * @param query the query
      * @return the response
-     * @throws NursaSolrException if there is a search error
+     * @throws NursaSolrException if there is a search error, including
+     *      a Solr HTTP error status
      */
     public QueryResponse search(SolrQuery query) {
+        long start = System.nanoTime();
+        RequestTimer.Stage stage = RequestTimer.stage("solr");
         try {
             return solrClient.query(query);
-        } catch (SolrServerException | IOException e) {
+        } catch (SolrServerException | IOException | SolrException e) {
+            metrics.counter("nursa_solr_query_errors_total",
+                    "The number of failed Solr queries.").increment();
             throw new NursaSolrException(query, e);
+        } finally {
+            stage.close();
+            metrics.timer("nursa_solr_query_duration_seconds",
+                    "The Solr query latency.").observeSince(start);
         }
     }
 
@@ -84,4 +104,40 @@ public class NursaSolrClient {
         return search(query);
     }
 
+    /**
+     * Builds a query on the given term which pages with a Solr cursor.
+     * The matches are sorted on the unique doi field, so each page
+     * costs the same at any depth.
+     * 
+     * @param term the search term
+     * @param cursor the Solr cursor mark, {@code *} for the first page
+     * @param size the number of rows to fetch
+     * @return the {@link #search(SolrQuery)} result, whose next cursor
+     *      mark equals the given cursor on the last page
+     */
+    public QueryResponse search(String term, String cursor, int size) {
+        SolrQuery query = new SolrQuery("doi:" + term + " OR " + term);
+        query.setSort(DOI_FIELD, SolrQuery.ORDER.asc);
+        query.setRows(size);
+        query.set(CursorMarkParams.CURSOR_MARK_PARAM, cursor);
+        return search(query);
+    }
+
+    /**
+     * Adds or replaces the given documents.
+     * 
+     * @param documents the documents to index
+     * @param commitWithinMillis the time within which Solr commits
+     *      the update
+     * @throws NursaSolrException if the update is unsuccessful
+     */
+    public void add(Collection<SolrInputDocument> documents, int commitWithinMillis) {
+        try {
+            solrClient.add(documents, commitWithinMillis);
+        } catch (SolrServerException | IOException | SolrException e) {
+            throw new NursaSolrException("Solr update of " + documents.size() +
+                    " documents unsuccessful", e);
+        }
+    }
+
 }
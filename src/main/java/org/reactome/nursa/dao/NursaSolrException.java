@@ -12,4 +12,8 @@ public class NursaSolrException extends RuntimeException {
     public NursaSolrException(String message) {
         super(message);
     }
+
+    public NursaSolrException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -0,0 +1,232 @@
+package org.reactome.nursa.dao;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.reactome.nursa.model.DataPoint;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Decodes the SPP REST API JSON documents into typed rows.
+ *
+ * The readers are built once and shared, since they are immutable and
+ * thread-safe. The dataset rows are bound directly to {@link DataSetRow}
+ * beans. The data point pages, which make up nearly all of the SPP
+ * content, are decoded at the token level into {@link DataPointRow}s
+ * without building a node tree or name-value maps.
+ *
+ * An SPP document is either a JSON array of row objects or a sequence
+ * of root-level row objects.
+ */
+public class SppCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .setVisibility(PropertyAccessor.FIELD, Visibility.ANY)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private static final ObjectReader DATASET_READER = MAPPER.readerFor(DataSetRow.class);
+
+    private static final JsonFactory FACTORY = MAPPER.getFactory();
+
+    /**
+     * @param content the SPP datasets document
+     * @return the dataset rows
+     * @throws IOException if the content could not be parsed
+     */
+    public static List<DataSetRow> readDataSets(byte[] content) throws IOException {
+        try (MappingIterator<DataSetRow> iterator = DATASET_READER.readValues(content)) {
+            return iterator.readAll();
+        }
+    }
+
+    /**
+     * @param content the SPP data points document
+     * @return the data point rows
+     * @throws IOException if the content could not be parsed
+     */
+    public static List<DataPointRow> readDataPoints(byte[] content) throws IOException {
+        List<DataPointRow> rows = new ArrayList<DataPointRow>();
+        try (JsonParser parser = FACTORY.createParser(content)) {
+            JsonToken token = parser.nextToken();
+            boolean isArray = token == JsonToken.START_ARRAY;
+            if (isArray) {
+                token = parser.nextToken();
+            }
+            while (token == JsonToken.START_OBJECT) {
+                rows.add(readDataPoint(parser));
+                token = parser.nextToken();
+            }
+            if (isArray ? token != JsonToken.END_ARRAY : token != null) {
+                throw new JsonParseException(parser, "Unexpected data points token: " + token);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Reads the object at the current START_OBJECT token.
+     */
+    private static DataPointRow readDataPoint(JsonParser parser) throws IOException {
+        int id = -1;
+        String internalExperimentId = null;
+        DataPoint dataPoint = new DataPoint();
+        boolean hasPvalue = false;
+        boolean hasFoldChange = false;
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken value = parser.nextToken();
+            switch (field) {
+            case "id":
+                id = parser.getValueAsInt(-1);
+                break;
+            case "experimentId":
+                internalExperimentId = parser.getValueAsString();
+                break;
+            case "symbol":
+                dataPoint.setSymbol(parser.getValueAsString());
+                break;
+            case "pvalue":
+                dataPoint.setPvalue(readNumber(parser, value, field));
+                hasPvalue = true;
+                break;
+            case "foldChange":
+                dataPoint.setFoldChange(readNumber(parser, value, field));
+                hasFoldChange = true;
+                break;
+            default:
+                if (value.isStructStart()) {
+                    parser.skipChildren();
+                }
+            }
+        }
+        if (id < 0) {
+            throw new JsonParseException(parser, "Missing id field for data point row");
+        }
+        if (!hasPvalue || !hasFoldChange) {
+            throw new JsonParseException(parser,
+                    "Missing pvalue or foldChange field for data point row " + id);
+        }
+        return new DataPointRow(id, internalExperimentId, dataPoint);
+    }
+
+    /**
+     * Reads the numeric value at the current token. A null or string
+     * value is rejected rather than read as zero, since a zero p-value
+     * would rank the data point as the most significant.
+     */
+    private static double readNumber(JsonParser parser, JsonToken token, String field)
+            throws IOException {
+        // Zero is an integer token.
+        if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT) {
+            throw new JsonParseException(parser,
+                    "Non-numeric data point " + field + " value: " + token);
+        }
+        return parser.getDoubleValue();
+    }
+
+    /** An SPP dataset row. */
+    public static class DataSetRow {
+        private String doi;
+
+        private String name;
+
+        private String description;
+
+        private List<ExperimentRow> experiments;
+
+        public String getDoi() {
+            return doi;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public List<ExperimentRow> getExperiments() {
+            return experiments;
+        }
+    }
+
+    /** An SPP dataset experiment row. */
+    public static class ExperimentRow {
+        private Integer experimentId;
+
+        private String internalExperimentId;
+
+        private String name;
+
+        private String description;
+
+        private String species;
+
+        public Integer getExperimentId() {
+            return experimentId;
+        }
+
+        public String getInternalExperimentId() {
+            return internalExperimentId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public String getSpecies() {
+            return species;
+        }
+    }
+
+    /** An SPP data point row. */
+    public static class DataPointRow {
+        private final int id;
+
+        private final String internalExperimentId;
+
+        private final DataPoint dataPoint;
+
+        DataPointRow(int id, String internalExperimentId, DataPoint dataPoint) {
+            this.id = id;
+            this.internalExperimentId = internalExperimentId;
+            this.dataPoint = dataPoint;
+        }
+
+        /**
+         * @return the SPP row id, which is only used for paging
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return the experiment internalExperimentId, which the SPP
+         *      REST API returns as the data point experimentId
+         */
+        public String getInternalExperimentId() {
+            return internalExperimentId;
+        }
+
+        public DataPoint getDataPoint() {
+            return dataPoint;
+        }
+    }
+
+}
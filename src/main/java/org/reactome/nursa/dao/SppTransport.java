@@ -0,0 +1,253 @@
+package org.reactome.nursa.dao;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.apache.log4j.Logger;
+import org.reactome.nursa.controller.NursaException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The HTTP transport for the SPP REST API.
+ *
+ * The transport reuses keep-alive connections from a pool, requests
+ * gzip content and applies the configured timeouts. The SPP requests
+ * are limited globally by a concurrent request budget and paced per
+ * host by an {@link AdaptivePacer}. Since the SPP requests are
+ * idempotent GETs, a request which fails with an I/O error, a 5xx
+ * status or a 429 status is retried with jittered exponential backoff.
+ */
+@Component
+public class SppTransport {
+
+    private static final Logger logger = Logger.getLogger(SppTransport.class);
+
+    private static final String REST_ERROR_MSG = "REST call unsuccessful: ";
+
+    private static final String REQUEST_HALTED_ERROR_MSG = "REST call halted: ";
+
+    /** The 429 status, which is not defined in {@link HttpStatus}. */
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+
+    @Value("${nursa.spp.max.concurrent.requests}")
+    private int maxConcurrentRequests;
+
+    @Value("${nursa.spp.min.request.interval.ms}")
+    private long minRequestIntervalMillis;
+
+    @Value("${nursa.spp.max.request.interval.ms}")
+    private long maxRequestIntervalMillis;
+
+    @Value("${nursa.spp.slow.response.ms}")
+    private long slowResponseMillis;
+
+    @Value("${nursa.spp.connect.timeout.ms}")
+    private int connectTimeoutMillis;
+
+    @Value("${nursa.spp.read.timeout.ms}")
+    private int readTimeoutMillis;
+
+    @Value("${nursa.spp.max.retries}")
+    private int maxRetries;
+
+    @Value("${nursa.spp.retry.backoff.ms}")
+    private long retryBackoffMillis;
+
+    private CloseableHttpClient client;
+
+    // The global SPP concurrent request budget.
+    private Semaphore requestPermits;
+
+    /** The {host: pacer} map. */
+    private final ConcurrentMap<String, AdaptivePacer> pacers =
+            new ConcurrentHashMap<String, AdaptivePacer>();
+
+    @PostConstruct
+    public void init() {
+        requestPermits = new Semaphore(maxConcurrentRequests, true);
+        PoolingHttpClientConnectionManager connections = new PoolingHttpClientConnectionManager();
+        connections.setMaxTotal(maxConcurrentRequests);
+        connections.setDefaultMaxPerRoute(maxConcurrentRequests);
+        RequestConfig config = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setConnectionRequestTimeout(connectTimeoutMillis)
+                .setSocketTimeout(readTimeoutMillis)
+                .build();
+        // The client decompresses gzip content transparently.
+        // Retries are handled here rather than by the client.
+        client = HttpClients.custom()
+                .setConnectionManager(connections)
+                .setDefaultRequestConfig(config)
+                .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    @PreDestroy
+    public void destroy() throws IOException {
+        client.close();
+    }
+
+    /**
+     * @return the number of SPP REST requests currently in progress
+     */
+    public int getRequestsInFlight() {
+        return maxConcurrentRequests - requestPermits.availablePermits();
+    }
+
+    /**
+     * @param host the SPP host
+     * @return the current interval between request starts to the host
+     */
+    public long getRequestIntervalMillis(String host) {
+        return getPacer(host).getIntervalMillis();
+    }
+
+    /**
+     * Fetches the given resource.
+     *
+     * @param uri the resource URI
+     * @return the response content
+     * @throws NursaException if the request is unsuccessful after
+     *      the retries
+     */
+    public byte[] get(URI uri) {
+        AdaptivePacer pacer = getPacer(uri.getHost());
+        try {
+            for (int attempt = 0; ; attempt++) {
+                Exception failure;
+                try {
+                    return execute(uri, pacer);
+                } catch (RetryableException | IOException e) {
+                    failure = e;
+                }
+                if (attempt >= maxRetries) {
+                    throw new NursaException(REST_ERROR_MSG + uri, failure);
+                }
+                logger.warn("Retrying " + uri + " after: " + failure.getMessage());
+                backoff(attempt);
+            }
+        } catch (InterruptedException e) {
+            throw new NursaException(REQUEST_HALTED_ERROR_MSG + uri);
+        }
+    }
+
+    /**
+     * Makes one request attempt. The request permit is only held for
+     * the request itself, so that a paced or backing off request does
+     * not take a permit from the requests to other hosts.
+     */
+    private byte[] execute(URI uri, AdaptivePacer pacer)
+            throws IOException, RetryableException, InterruptedException {
+        pacer.acquire();
+        requestPermits.acquire();
+        try {
+            return send(uri, pacer);
+        } finally {
+            requestPermits.release();
+        }
+    }
+
+    private byte[] send(URI uri, AdaptivePacer pacer)
+            throws IOException, RetryableException {
+        HttpGet request = new HttpGet(uri);
+        request.setHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        long start = System.currentTimeMillis();
+        try (CloseableHttpResponse response = client.execute(request)) {
+            int status = response.getStatusLine().getStatusCode();
+            if (status >= 200 && status < 300) {
+                byte[] content = EntityUtils.toByteArray(response.getEntity());
+                pacer.onSuccess(System.currentTimeMillis() - start);
+                return content;
+            }
+            EntityUtils.consumeQuietly(response.getEntity());
+            String message = "Status " + status + " " +
+                    response.getStatusLine().getReasonPhrase();
+            if (status == SC_TOO_MANY_REQUESTS ||
+                    status == HttpStatus.SC_SERVICE_UNAVAILABLE) {
+                pacer.onOverload(getRetryAfterMillis(response));
+                throw new RetryableException(message);
+            }
+            if (status >= 500) {
+                throw new RetryableException(message);
+            }
+            throw new NursaException(REST_ERROR_MSG + uri + ": " + message);
+        }
+    }
+
+    private void backoff(int attempt) throws InterruptedException {
+        // Full jitter: a random delay up to the exponential bound.
+        long bound = retryBackoffMillis << Math.min(attempt, 16);
+        Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+    }
+
+    private static long getRetryAfterMillis(CloseableHttpResponse response) {
+        Header header = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        if (header == null) {
+            return 0;
+        }
+        return parseRetryAfterMillis(header.getValue(), System.currentTimeMillis());
+    }
+
+    /**
+     * Parses a <code>Retry-After</code> value, which is either a
+     * number of seconds or an HTTP date.
+     *
+     * @param value the header value
+     * @param now the current time in milliseconds
+     * @return the delay in milliseconds, or 0 if the value is
+     *      invalid or in the past
+     */
+    static long parseRetryAfterMillis(String value, long now) {
+        String trimmed = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(trimmed) * 1000);
+        } catch (NumberFormatException e) {
+            // Not delta-seconds; try the HTTP date form.
+        }
+        try {
+            long date = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME)
+                    .toInstant().toEpochMilli();
+            return Math.max(0, date - now);
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+
+    private AdaptivePacer getPacer(String host) {
+        return pacers.computeIfAbsent(host, key -> new AdaptivePacer(
+                minRequestIntervalMillis, maxRequestIntervalMillis, slowResponseMillis));
+    }
+
+    /** A failed request which may succeed if retried. */
+    private static class RetryableException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        RetryableException(String message) {
+            super(message);
+        }
+    }
+
+}
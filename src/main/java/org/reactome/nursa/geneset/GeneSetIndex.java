@@ -0,0 +1,254 @@
+package org.reactome.nursa.geneset;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * An immutable index of the pathway gene sets in a GMT file.
+ *
+ * Each GMT line consists of the tab-separated pathway name, pathway
+ * id and member gene symbols. The index maps each symbol to the
+ * pathways which contain it and each pathway to its member symbols,
+ * both as int arrays over the symbol and pathway tables.
+ */
+public class GeneSetIndex {
+
+    private static final int[] NO_PATHWAYS = new int[0];
+
+    /** The version hash prefix length. */
+    private static final int VERSION_HASH_LENGTH = 12;
+
+    private final String source;
+
+    private final String version;
+
+    private final String[] pathwayIds;
+
+    private final String[] pathwayNames;
+
+    /** The {pathway index: member symbol indexes} table. */
+    private final int[][] pathwayMembers;
+
+    private final String[] symbols;
+
+    private final Map<String, Integer> symbolIndexes;
+
+    /** The {symbol index: pathway indexes} table. */
+    private final int[][] symbolPathways;
+
+    private GeneSetIndex(String source, String version, String[] pathwayIds,
+            String[] pathwayNames, int[][] pathwayMembers, String[] symbols,
+            Map<String, Integer> symbolIndexes, int[][] symbolPathways) {
+        this.source = source;
+        this.version = version;
+        this.pathwayIds = pathwayIds;
+        this.pathwayNames = pathwayNames;
+        this.pathwayMembers = pathwayMembers;
+        this.symbols = symbols;
+        this.symbolIndexes = symbolIndexes;
+        this.symbolPathways = symbolPathways;
+    }
+
+    /**
+     * Builds the index from the given GMT content.
+     *
+     * @param input the GMT content
+     * @param source the content source, e.g. the file name
+     * @return the index
+     * @throws IOException if the content could not be read
+     */
+    public static GeneSetIndex parse(InputStream input, String source) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // Should never occur: every JVM supports SHA-1.
+            throw new IllegalStateException(e);
+        }
+        List<String> pathwayIds = new ArrayList<String>();
+        List<String> pathwayNames = new ArrayList<String>();
+        List<int[]> pathwayMembers = new ArrayList<int[]>();
+        List<String> symbols = new ArrayList<String>();
+        Map<String, Integer> symbolIndexes = new HashMap<String, Integer>();
+        List<List<Integer>> symbolPathways = new ArrayList<List<Integer>>();
+        DigestInputStream dis = new DigestInputStream(input, digest);
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(dis, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] fields = line.split("\\t");
+            // The symbols follow the first two fields.
+            if (fields.length < 2) {
+                continue;
+            }
+            int pathway = pathwayIds.size();
+            pathwayNames.add(fields[0]);
+            pathwayIds.add(fields[1]);
+            Set<Integer> members = new LinkedHashSet<Integer>();
+            for (int i = 2; i < fields.length; i++) {
+                String symbol = fields[i];
+                Integer index = symbolIndexes.get(symbol);
+                if (index == null) {
+                    index = symbols.size();
+                    symbols.add(symbol);
+                    symbolIndexes.put(symbol, index);
+                    symbolPathways.add(new ArrayList<Integer>(4));
+                }
+                if (members.add(index)) {
+                    symbolPathways.get(index).add(pathway);
+                }
+            }
+            pathwayMembers.add(toArray(members));
+        }
+        String hash = Hex.encodeHexString(digest.digest());
+        String version = source + "@" + hash.substring(0, VERSION_HASH_LENGTH);
+        int[][] symbolPathwaysTable = new int[symbols.size()][];
+        for (int i = 0; i < symbolPathwaysTable.length; i++) {
+            symbolPathwaysTable[i] = toArray(symbolPathways.get(i));
+        }
+
+        return new GeneSetIndex(source, version,
+                pathwayIds.toArray(new String[pathwayIds.size()]),
+                pathwayNames.toArray(new String[pathwayNames.size()]),
+                pathwayMembers.toArray(new int[pathwayMembers.size()][]),
+                symbols.toArray(new String[symbols.size()]),
+                Collections.unmodifiableMap(symbolIndexes),
+                symbolPathwaysTable);
+    }
+
+    private static int[] toArray(Iterable<Integer> values) {
+        List<Integer> list = new ArrayList<Integer>();
+        values.forEach(list::add);
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * @return the GMT source, e.g. the file name
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return the version, consisting of the source and a content hash
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * @param symbol the gene symbol
+     * @return whether the symbol is in any pathway
+     */
+    public boolean contains(String symbol) {
+        return symbol != null && symbolIndexes.containsKey(symbol);
+    }
+
+    /**
+     * @param symbol the gene symbol
+     * @return the symbol index, or -1 if the symbol is not in any pathway
+     */
+    public int getSymbolIndex(String symbol) {
+        Integer index = symbol == null ? null : symbolIndexes.get(symbol);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @param index the symbol index
+     * @return the gene symbol
+     */
+    public String getSymbol(int index) {
+        return symbols[index];
+    }
+
+    /**
+     * @param symbol the gene symbol
+     * @return the indexes of the pathways which contain the symbol
+     */
+    public int[] getPathwayIndexes(String symbol) {
+        int index = getSymbolIndex(symbol);
+        return index < 0 ? NO_PATHWAYS : symbolPathways[index].clone();
+    }
+
+    /**
+     * @param symbol the gene symbol
+     * @return the ids of the pathways which contain the symbol
+     */
+    public List<String> getPathwayIds(String symbol) {
+        int index = getSymbolIndex(symbol);
+        if (index < 0) {
+            return Collections.emptyList();
+        }
+        List<String> ids = new ArrayList<String>(symbolPathways[index].length);
+        for (int pathway: symbolPathways[index]) {
+            ids.add(pathwayIds[pathway]);
+        }
+        return ids;
+    }
+
+    /**
+     * @return the number of distinct gene symbols
+     */
+    public int getSymbolCount() {
+        return symbols.length;
+    }
+
+    /**
+     * @return the number of pathways
+     */
+    public int getPathwayCount() {
+        return pathwayIds.length;
+    }
+
+    /**
+     * @param pathway the pathway index
+     * @return the pathway id
+     */
+    public String getPathwayId(int pathway) {
+        return pathwayIds[pathway];
+    }
+
+    /**
+     * @param pathway the pathway index
+     * @return the pathway name
+     */
+    public String getPathwayName(int pathway) {
+        return pathwayNames[pathway];
+    }
+
+    /**
+     * @param pathway the pathway index
+     * @return the number of member symbols
+     */
+    public int getPathwaySize(int pathway) {
+        return pathwayMembers[pathway].length;
+    }
+
+    /**
+     * @param pathway the pathway index
+     * @return the member symbol indexes
+     */
+    public int[] getPathwayMembers(int pathway) {
+        return pathwayMembers[pathway].clone();
+    }
+
+}
@@ -0,0 +1,208 @@
+package org.reactome.nursa.geneset;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.log4j.Logger;
+import org.reactome.nursa.controller.NursaException;
+import org.reactome.nursa.metrics.MetricsRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds the current Reactome {@link GeneSetIndex}.
+ *
+ * The index is built eagerly at startup from the {@code nursa.gmt.file}
+ * file, if set, otherwise from the {@code gmtResource} class path resource.
+ * A new index is built off to the side and swapped in atomically when the
+ * GMT file changes or a new GMT is loaded, so readers always see a
+ * complete index. A changed GMT file is reloaded once it has been quiet
+ * for a second, so that a file which is written in place is not read
+ * part way. An index without gene sets is rejected.
+ */
+@Component
+public class GeneSetService {
+
+    private static final Logger logger = Logger.getLogger(GeneSetService.class);
+
+    private static final String GMT_READ_ERROR_MSG = "Could not read the GMT content: ";
+
+    /** The time without a GMT file change after which the file is reloaded. */
+    private static final long QUIET_MILLIS = 1000;
+
+    @Value("${gmtResource}")
+    private String gmtResource;
+
+    /** The optional watched GMT file path. */
+    @Value("${nursa.gmt.file}")
+    private String gmtFile;
+
+    private final AtomicReference<GeneSetIndex> index = new AtomicReference<GeneSetIndex>();
+
+    private final List<Consumer<GeneSetIndex>> listeners =
+            new CopyOnWriteArrayList<Consumer<GeneSetIndex>>();
+
+    private WatchService watcher;
+
+    @Autowired
+    private MetricsRegistry metrics;
+
+    @PostConstruct
+    public void init() throws IOException {
+        metrics.gauge("nursa_geneset_symbols", "The Reactome gene set index gene symbol count.",
+                () -> getIndex().getSymbolCount());
+        metrics.gauge("nursa_geneset_pathways", "The Reactome gene set index pathway count.",
+                () -> getIndex().getPathwayCount());
+        if (gmtFile == null || gmtFile.isEmpty()) {
+            InputStream input = getClass().getClassLoader().getResourceAsStream(gmtResource);
+            if (input == null) {
+                throw new IllegalStateException("gmtResource not found: " + gmtResource);
+            }
+            swap(load(input, gmtResource));
+        } else {
+            File file = new File(gmtFile);
+            swap(load(new FileInputStream(file), file.getName()));
+            watch(file);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    /**
+     * @return the current index
+     */
+    public GeneSetIndex getIndex() {
+        return index.get();
+    }
+
+    /**
+     * @param listener the callback to notify when a new index is swapped in
+     */
+    public void addListener(Consumer<GeneSetIndex> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Builds an index from the given GMT content and swaps it in.
+     *
+     * @param content the GMT content
+     * @param source the content source
+     * @return the new index
+     * @throws NursaException if the content could not be parsed or has
+     *      no gene sets
+     */
+    public GeneSetIndex reload(String content, String source) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        GeneSetIndex loaded;
+        try {
+            loaded = load(new ByteArrayInputStream(bytes), source);
+        } catch (IOException e) {
+            throw new NursaException(GMT_READ_ERROR_MSG + source, e);
+        }
+        swap(loaded);
+        return loaded;
+    }
+
+    private GeneSetIndex load(InputStream input, String source) throws IOException {
+        try {
+            GeneSetIndex loaded = GeneSetIndex.parse(input, source);
+            logger.info("Loaded " + loaded.getSymbolCount() + " gene symbols in " +
+                    loaded.getPathwayCount() + " pathways from " + loaded.getVersion() + ".");
+            return loaded;
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * @throws NursaException if the index has no pathways or symbols
+     */
+    private void swap(GeneSetIndex loaded) {
+        if (loaded.getPathwayCount() == 0 || loaded.getSymbolCount() == 0) {
+            throw new NursaException("The GMT content has no gene sets: " +
+                    loaded.getSource());
+        }
+        GeneSetIndex previous = index.getAndSet(loaded);
+        if (previous != null && !previous.getVersion().equals(loaded.getVersion())) {
+            for (Consumer<GeneSetIndex> listener: listeners) {
+                listener.accept(loaded);
+            }
+        }
+    }
+
+    private void watch(File file) throws IOException {
+        Path dir = file.getAbsoluteFile().getParentFile().toPath();
+        Path name = file.toPath().getFileName();
+        watcher = FileSystems.getDefault().newWatchService();
+        dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    if (!isChanged(watcher.take(), name)) {
+                        continue;
+                    }
+                    // Wait until the file is quiet.
+                    WatchKey key;
+                    while ((key = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                        isChanged(key, name);
+                    }
+                    reload(file);
+                }
+            } catch (ClosedWatchServiceException | InterruptedException e) {
+                // The service is shutting down.
+            }
+        }, "nursa-gmt-watch");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Watching the GMT file " + file + " for changes.");
+    }
+
+    /**
+     * @return whether the key has an event for the given file name
+     */
+    private static boolean isChanged(WatchKey key, Path name) {
+        boolean changed = false;
+        for (WatchEvent<?> event: key.pollEvents()) {
+            changed |= name.equals(event.context());
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void reload(File file) {
+        try {
+            swap(load(new FileInputStream(file), file.getName()));
+        } catch (IOException | RuntimeException e) {
+            // Keep the current index and keep watching, e.g. if the
+            // file is empty or a listener failed.
+            logger.error("Could not reload the GMT file " + file, e);
+        }
+    }
+
+}
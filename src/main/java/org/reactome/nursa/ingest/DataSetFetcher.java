@@ -0,0 +1,194 @@
+package org.reactome.nursa.ingest;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.reactome.nursa.controller.NursaException;
+import org.reactome.nursa.dao.DataPointsWriter;
+import org.reactome.nursa.dao.NursaFileCache;
+import org.reactome.nursa.dao.NursaRestClient;
+import org.reactome.nursa.dao.SppCodec;
+import org.reactome.nursa.geneset.GeneSetIndex;
+import org.reactome.nursa.geneset.GeneSetService;
+import org.reactome.nursa.model.DataSet;
+import org.reactome.nursa.model.Experiment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fetches datasets from the SPP REST API into the file cache.
+ */
+@Component
+public class DataSetFetcher {
+
+    private static final String INTERNAL_EXP_ID_ERROR_MSG = "Data point internal experiment id not found in ";
+
+    private static final String[] SUPPORTED_SPECIES = {
+            "Human"
+    };
+
+    @Autowired
+    private NursaRestClient nursaClient;
+
+    @Autowired
+    private NursaFileCache fileCache;
+
+    @Autowired
+    private GeneSetService geneSets;
+
+    // The in-flight {doi: fetch} tasks.
+    private final SingleFlight<String, DataSet> flights = new SingleFlight<String, DataSet>();
+
+    /**
+     * Fetches the given dataset and its data points from SPP and
+     * writes them to the file cache. A call for a dataset which is
+     * already being fetched waits for and returns that fetch result.
+     *
+     * @param doi the dataset DOI
+     * @return the dataset, or null if SPP does not have the dataset
+     */
+    public DataSet fetchDataSet(String doi) {
+        return flights.execute(doi, () -> doFetchDataSet(doi));
+    }
+
+    private DataSet doFetchDataSet(String doi) {
+        // The {internal experiment id: experiment id} works around the
+        // following SPP REST API bug:
+        // * contrary to the SPP REST API documentation as of 04/2019,
+        //   the data point record experimentId value is the experiment
+        //   internalExperimentId, not the experimentId.
+        Map<String, Integer> expIdMap = new HashMap<String, Integer>();
+        DataSet dataset = nursaClient.getDataSet(doi)
+                        .map(row -> parseDataSetRow(row, expIdMap))
+                        .findFirst()
+                        .orElse(null);
+        // Cache the dataset.
+        if (dataset != null) {
+            writeDataSet(dataset, expIdMap);
+        }
+        
+        return dataset;
+    }
+
+    /**
+     * Fetches the meta-data of the supported species datasets added
+     * to SPP after the given date. The data points are not fetched.
+     *
+     * @param addedSince the date cut-off
+     * @param expIdMap the {internal experiment id: experiment id} map
+     *      to populate for a subsequent {@link #cacheDataSet} call
+     * @return the datasets
+     */
+    public List<DataSet> fetchDataSets(Date addedSince, Map<String, Integer> expIdMap) {
+        // Iterate over each record returned by the REST call.
+        return nursaClient.getDataSets(addedSince)
+                        .map(row -> parseDataSetRow(row, expIdMap))
+                        .filter(DataSetFetcher::isSupportedSpecies)
+                        .collect(Collectors.toList());
+    }
+
+    /**
+     * Fetches the given dataset's data points from SPP and writes
+     * the dataset and data points to the file cache. A call for a
+     * dataset which is already being fetched waits for that fetch
+     * instead.
+     *
+     * @param dataset the dataset fetched by {@link #fetchDataSets}
+     * @param expIdMap the {internal experiment id: experiment id} map
+     */
+    public void cacheDataSet(DataSet dataset, Map<String, Integer> expIdMap) {
+        flights.execute(dataset.getDoi(), () -> {
+            writeDataSet(dataset, expIdMap);
+            return dataset;
+        });
+    }
+
+    /**
+     * @return the number of dataset fetches in progress
+     */
+    public int getFetchesInFlight() {
+        return flights.size();
+    }
+
+    private void writeDataSet(DataSet dataset, Map<String, Integer> expIdMap) {
+        String doi = dataset.getDoi();
+        // Route each data point to its experiment file as it arrives.
+        // Closing the rows stream cancels the page prefetch on error,
+        // and closing an uncommitted writer discards its files.
+        try (DataPointsWriter writer = fileCache.openDataPointsWriter(doi);
+             Stream<SppCodec.DataPointRow> rows = nursaClient.getDataPoints(doi)) {
+            rows.forEach(row -> {
+                String internalExpId = row.getInternalExperimentId();
+                Integer expId = expIdMap.get(internalExpId);
+                if (expId == null) {
+                    String msg = INTERNAL_EXP_ID_ERROR_MSG + "dataset: " +
+                            doi + "; experiment internal id: " + internalExpId;
+                    throw new NursaException(msg);
+                }
+                writer.write(expId, row.getDataPoint());
+            });
+            writer.commit(dataset);
+            // Precompute the served displayable data points.
+            GeneSetIndex index = geneSets.getIndex();
+            for (Integer expId: writer.getExperimentIds()) {
+                fileCache.getDisplayableFile(doi, expId, index);
+            }
+        }
+    }
+
+    private static boolean isSupportedSpecies(DataSet dataset) {
+        return dataset.getExperiments().stream()
+                .map(Experiment::getSpecies)
+                .allMatch(DataSetFetcher::isSupportedSpecies);
+    }
+
+    private static boolean isSupportedSpecies(String species) {
+        return Stream.of(SUPPORTED_SPECIES)
+                .anyMatch(supported ->  supported.equals(species));
+    }
+
+    private static DataSet parseDataSetRow(SppCodec.DataSetRow row, Map<String, Integer> expIdMap) {
+        DataSet dataset = new DataSet();
+        String doi = row.getDoi();
+        if (doi == null) {
+            throw new NursaException("Missing doi field for dataset row");
+        }
+        dataset.setDoi(doi);
+        String name = row.getName();
+        if (name == null) {
+            throw new NursaException("Missing name field for dataset row " + doi);
+        }
+        dataset.setName(name);
+        String description = row.getDescription();
+        // Description is missing from record as of 04/2019.
+        if (description != null) {
+            dataset.setDescription(description);
+        }
+        List<SppCodec.ExperimentRow> expRows = row.getExperiments();
+        List<Experiment> experiments = expRows == null ? new ArrayList<Experiment>() :
+            expRows.stream()
+                .map(expRow -> parseExperimentRow(expRow, expIdMap))
+                .collect(Collectors.toList());
+        dataset.setExperiments(experiments);
+
+        return dataset;
+    }
+
+    private static Experiment parseExperimentRow(SppCodec.ExperimentRow row, Map<String, Integer> expIdMap) {
+        Experiment experiment = new Experiment();
+        Integer id = row.getExperimentId();
+        experiment.setId(id);
+        experiment.setName(row.getName());
+        experiment.setDescription(row.getDescription());
+        experiment.setSpecies(row.getSpecies());
+        expIdMap.put(row.getInternalExperimentId(), id);
+        
+        return experiment;
+    }
+
+}
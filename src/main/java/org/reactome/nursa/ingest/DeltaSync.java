@@ -0,0 +1,196 @@
+package org.reactome.nursa.ingest;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.log4j.Logger;
+import org.reactome.nursa.controller.NursaException;
+import org.reactome.nursa.dao.NursaFileCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically ingests the datasets added to SPP since the last
+ * successful sync.
+ *
+ * The sync watermark is persisted in the file cache. Each run lists the
+ * datasets added since the watermark, ingests only those which are not
+ * yet cached, and advances the watermark to the run start date. The
+ * SPP added date has day granularity, so the listing overlaps the
+ * previous run by a day; the overlap costs one listing page, since the
+ * cached datasets are skipped.
+ *
+ * The DOIs of the datasets which could not be ingested are persisted in
+ * the file cache with their failed attempt count, and are refetched by
+ * the following runs. A dataset which fails the maximum number of
+ * attempts is given up on, so that it cannot be retried forever.
+ *
+ * Successive runs are separated by the interval plus a random jitter,
+ * so that service instances do not sync in lockstep.
+ */
+@Component
+public class DeltaSync {
+
+    private static final Logger logger = Logger.getLogger(DeltaSync.class);
+
+    private static final String DATE_FORMAT = "yyyyMMdd";
+
+    @Value("${nursa.sync.enabled}")
+    private boolean enabled;
+
+    @Value("${nursa.sync.interval.minutes}")
+    private long intervalMinutes;
+
+    @Value("${nursa.sync.jitter.minutes}")
+    private long jitterMinutes;
+
+    @Value("${nursa.sync.initial.addedsince}")
+    private String initialAddedSince;
+
+    @Value("${nursa.sync.max.attempts}")
+    private int maxAttempts;
+
+    @Autowired
+    private IngestionEngine ingestionEngine;
+
+    @Autowired
+    private NursaFileCache fileCache;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nursa-delta-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        schedule(jitterMinutes);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Schedules the next run after the given delay plus a random jitter.
+     *
+     * @param delayMinutes the minimum delay
+     */
+    private void schedule(long delayMinutes) {
+        long delayMillis = TimeUnit.MINUTES.toMillis(delayMinutes) +
+                ThreadLocalRandom.current().nextLong(TimeUnit.MINUTES.toMillis(jitterMinutes) + 1);
+        scheduler.schedule(this::run, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void run() {
+        try {
+            sync();
+        } catch (Throwable e) {
+            // Catch errors as well, since the next run is scheduled here.
+            logger.error("SPP delta sync failed", e);
+        } finally {
+            if (!scheduler.isShutdown()) {
+                schedule(intervalMinutes);
+            }
+        }
+    }
+
+    /**
+     * Retries the previously failed datasets, ingests the uncached
+     * datasets added since the watermark, records the failures for
+     * retry and advances the watermark.
+     */
+    private void sync() {
+        Date start = new Date();
+        Date watermark = fileCache.readSyncWatermark();
+        if (watermark == null) {
+            watermark = getInitialWatermark(start);
+        }
+        Map<String, Integer> attempts = fileCache.readSyncRetries();
+        IngestionReport retried = attempts.isEmpty() ?
+                new IngestionReport(Collections.emptyList()) :
+                ingestionEngine.refresh(attempts.keySet());
+        Date addedSince = new Date(watermark.getTime() - TimeUnit.DAYS.toMillis(1));
+        IngestionReport report = ingestionEngine.ingestAddedSince(addedSince,
+                dataset -> !attempts.containsKey(dataset.getDoi()) &&
+                        !fileCache.hasDataSet(dataset.getDoi()));
+        fileCache.writeSyncRetries(getRetries(Arrays.asList(retried, report), attempts,
+                maxAttempts));
+        fileCache.writeSyncWatermark(start);
+        logger.info("SPP delta sync since " + new SimpleDateFormat(DATE_FORMAT).format(addedSince) +
+                " ingested " + report.getSucceeded() + " datasets with " +
+                report.getFailed() + " failures, and retried " + retried.getResults().size() +
+                " datasets with " + retried.getFailed() + " failures.");
+    }
+
+    /**
+     * @param reports the ingestion reports
+     * @param attempts the previous {DOI: failed attempts}
+     * @param maxAttempts the number of failed attempts after which a
+     *      dataset is given up on
+     * @return the {DOI: failed attempts} of the failed datasets which
+     *      have attempts left
+     */
+    static Map<String, Integer> getRetries(List<IngestionReport> reports,
+            Map<String, Integer> attempts, int maxAttempts) {
+        Map<String, Integer> retries = new LinkedHashMap<String, Integer>();
+        for (IngestionReport report: reports) {
+            for (IngestionResult result: report.getResults()) {
+                if (result.isSuccess()) {
+                    continue;
+                }
+                String doi = result.getDoi();
+                int failures = attempts.getOrDefault(doi, 0) + 1;
+                if (failures < maxAttempts) {
+                    retries.put(doi, failures);
+                } else {
+                    logger.error("SPP delta sync gave up on dataset " + doi + " after " +
+                            failures + " failed attempts: " + result.getError());
+                }
+            }
+        }
+        return retries;
+    }
+
+    /**
+     * @param start the run start date
+     * @return the configured initial watermark, or the start date if
+     *      there is none, in which case existing SPP datasets are not
+     *      backfilled
+     * @throws NursaException if the initial watermark is not a
+     *      yyyyMMdd date
+     */
+    private Date getInitialWatermark(Date start) {
+        if (initialAddedSince == null || initialAddedSince.trim().isEmpty()) {
+            return start;
+        }
+        try {
+            return new SimpleDateFormat(DATE_FORMAT).parse(initialAddedSince.trim());
+        } catch (ParseException e) {
+            throw new NursaException("Invalid nursa.sync.initial.addedsince date: " +
+                    initialAddedSince, e);
+        }
+    }
+
+}
@@ -0,0 +1,220 @@
+package org.reactome.nursa.ingest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.log4j.Logger;
+import org.reactome.nursa.controller.NursaException;
+import org.reactome.nursa.dao.NursaRestClient;
+import org.reactome.nursa.metrics.MetricsRegistry;
+import org.reactome.nursa.model.DataSet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ingests datasets from SPP into the file cache on a bounded worker pool.
+ *
+ * The SPP request concurrency and pacing are enforced globally by the
+ * {@link NursaRestClient}, so the pool size only bounds the number of
+ * datasets in progress.
+ */
+@Component
+public class IngestionEngine {
+
+    private static final Logger logger = Logger.getLogger(IngestionEngine.class);
+
+    private static final String INGEST_HALTED_ERROR_MSG = "Dataset ingestion halted";
+
+    @Value("${nursa.ingest.threads}")
+    private int threadCount;
+
+    @Autowired
+    private DataSetFetcher fetcher;
+
+    @Autowired
+    private NursaRestClient nursaClient;
+
+    @Autowired
+    private MetricsRegistry metrics;
+
+    private ExecutorService executor;
+
+    private final LongAdder submitted = new LongAdder();
+
+    private final LongAdder active = new LongAdder();
+
+    private final LongAdder succeeded = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "nursa-ingest-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = Executors.newFixedThreadPool(threadCount, factory);
+        metrics.counter("nursa_ingest_datasets_total", "The number of ingested datasets by outcome.",
+                succeeded::sum, "outcome", "succeeded");
+        metrics.counter("nursa_ingest_datasets_total", "The number of ingested datasets by outcome.",
+                failed::sum, "outcome", "failed");
+        metrics.gauge("nursa_ingest_active", "The number of datasets being ingested.",
+                active::sum);
+        metrics.gauge("nursa_spp_requests_in_flight",
+                "The number of SPP REST requests in progress.",
+                nursaClient::getRequestsInFlight);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Refetches the given datasets from SPP.
+     *
+     * @param dois the dataset DOIs
+     * @return the ingestion report
+     */
+    public IngestionReport refresh(Collection<String> dois) {
+        return refresh(dois, IngestionListener.NONE);
+    }
+
+    /**
+     * Refetches the given datasets from SPP.
+     *
+     * @param dois the dataset DOIs
+     * @param listener the progress listener
+     * @return the ingestion report
+     */
+    public IngestionReport refresh(Collection<String> dois, IngestionListener listener) {
+        List<Future<IngestionResult>> futures = new ArrayList<Future<IngestionResult>>();
+        for (String doi: dois) {
+            futures.add(submit(doi, () -> fetcher.fetchDataSet(doi), listener));
+        }
+        listener.submitted(futures.size());
+        return collect(futures);
+    }
+
+    /**
+     * Fetches the datasets added to SPP after the given date.
+     *
+     * @param addedSince the date cut-off
+     * @return the ingestion report
+     */
+    public IngestionReport ingestAddedSince(Date addedSince) {
+        return ingestAddedSince(addedSince, dataset -> true);
+    }
+
+    /**
+     * Fetches the selected datasets added to SPP after the given date.
+     *
+     * @param addedSince the date cut-off
+     * @param filter the listed dataset selection predicate
+     * @return the ingestion report
+     */
+    public IngestionReport ingestAddedSince(Date addedSince, Predicate<DataSet> filter) {
+        return ingestAddedSince(addedSince, filter, IngestionListener.NONE);
+    }
+
+    /**
+     * Fetches the selected datasets added to SPP after the given date.
+     *
+     * @param addedSince the date cut-off
+     * @param filter the listed dataset selection predicate
+     * @param listener the progress listener
+     * @return the ingestion report
+     */
+    public IngestionReport ingestAddedSince(Date addedSince, Predicate<DataSet> filter,
+            IngestionListener listener) {
+        // The listing populates the map before the workers read it.
+        Map<String, Integer> expIdMap = new HashMap<String, Integer>();
+        List<DataSet> datasets = fetcher.fetchDataSets(addedSince, expIdMap);
+        List<Future<IngestionResult>> futures = new ArrayList<Future<IngestionResult>>();
+        for (DataSet dataset: datasets) {
+            if (!filter.test(dataset)) {
+                continue;
+            }
+            futures.add(submit(dataset.getDoi(), () -> {
+                fetcher.cacheDataSet(dataset, expIdMap);
+                return dataset;
+            }, listener));
+        }
+        listener.submitted(futures.size());
+        return collect(futures);
+    }
+
+    /**
+     * @return the progress counters
+     */
+    public IngestionProgress getProgress() {
+        return new IngestionProgress(submitted.sum(), active.sum(),
+                succeeded.sum(), failed.sum(), nursaClient.getRequestsInFlight(),
+                fetcher.getFetchesInFlight());
+    }
+
+    private Future<IngestionResult> submit(String doi, Supplier<DataSet> task,
+            IngestionListener listener) {
+        submitted.increment();
+        return executor.submit(() -> {
+            active.increment();
+            long start = System.currentTimeMillis();
+            IngestionResult result;
+            try {
+                DataSet dataset = task.get();
+                succeeded.increment();
+                result = IngestionResult.success(doi, dataset,
+                        System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                failed.increment();
+                logger.error("Ingestion unsuccessful for dataset: " + doi, e);
+                result = IngestionResult.failure(doi, e,
+                        System.currentTimeMillis() - start);
+            } finally {
+                active.decrement();
+            }
+            listener.completed(result);
+            return result;
+        });
+    }
+
+    private IngestionReport collect(List<Future<IngestionResult>> futures) {
+        List<IngestionResult> results = new ArrayList<IngestionResult>(futures.size());
+        try {
+            for (Future<IngestionResult> future: futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new NursaException(INGEST_HALTED_ERROR_MSG);
+        } catch (ExecutionException e) {
+            // Should never occur: the task catches all exceptions.
+            throw new NursaException(INGEST_HALTED_ERROR_MSG, e);
+        }
+        IngestionReport report = new IngestionReport(results);
+        logger.info("Ingested " + report.getSucceeded() + " datasets with " +
+                report.getFailed() + " failures.");
+
+        return report;
+    }
+
+}
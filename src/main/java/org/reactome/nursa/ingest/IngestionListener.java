@@ -0,0 +1,29 @@
+package org.reactome.nursa.ingest;
+
+/**
+ * Callback which is notified of the progress of an
+ * {@link IngestionEngine} run.
+ */
+public interface IngestionListener {
+
+    /** The listener which ignores the notifications. */
+    IngestionListener NONE = new IngestionListener() {};
+
+    /**
+     * Called once all of the run datasets are submitted. Datasets may
+     * complete before this call.
+     *
+     * @param total the number of datasets in the run
+     */
+    default void submitted(int total) {
+    }
+
+    /**
+     * Called on the worker thread as each dataset completes.
+     *
+     * @param result the dataset outcome
+     */
+    default void completed(IngestionResult result) {
+    }
+
+}
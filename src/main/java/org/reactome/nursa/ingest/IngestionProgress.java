@@ -0,0 +1,80 @@
+package org.reactome.nursa.ingest;
+
+/**
+ * A snapshot of the {@link IngestionEngine} progress counters.
+ */
+public class IngestionProgress {
+
+    private final long submitted;
+
+    private final long active;
+
+    private final long succeeded;
+
+    private final long failed;
+
+    private final int sppRequestsInFlight;
+
+    private final int fetchesInFlight;
+
+    public IngestionProgress(long submitted, long active, long succeeded,
+            long failed, int sppRequestsInFlight, int fetchesInFlight) {
+        this.submitted = submitted;
+        this.active = active;
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.sppRequestsInFlight = sppRequestsInFlight;
+        this.fetchesInFlight = fetchesInFlight;
+    }
+
+    /**
+     * @return the number of datasets submitted since startup
+     */
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    /**
+     * @return the number of datasets currently being ingested
+     */
+    public long getActive() {
+        return active;
+    }
+
+    /**
+     * @return the number of datasets waiting for a worker
+     */
+    public long getQueued() {
+        return submitted - active - succeeded - failed;
+    }
+
+    /**
+     * @return the number of datasets ingested since startup
+     */
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * @return the number of failed dataset ingestions since startup
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return the number of SPP REST requests currently in progress
+     */
+    public int getSppRequestsInFlight() {
+        return sppRequestsInFlight;
+    }
+
+    /**
+     * @return the number of distinct dataset fetches in progress,
+     *      including the request-driven fetches
+     */
+    public int getFetchesInFlight() {
+        return fetchesInFlight;
+    }
+
+}
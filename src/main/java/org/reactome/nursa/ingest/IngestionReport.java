@@ -0,0 +1,50 @@
+package org.reactome.nursa.ingest;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.reactome.nursa.model.DataSet;
+
+/**
+ * The per-dataset outcomes of an ingestion run.
+ */
+public class IngestionReport {
+
+    private final List<IngestionResult> results;
+
+    public IngestionReport(List<IngestionResult> results) {
+        this.results = results;
+    }
+
+    /**
+     * @return the per-dataset results
+     */
+    public List<IngestionResult> getResults() {
+        return results;
+    }
+
+    /**
+     * @return the number of successfully ingested datasets
+     */
+    public int getSucceeded() {
+        return (int) results.stream().filter(IngestionResult::isSuccess).count();
+    }
+
+    /**
+     * @return the number of datasets which could not be ingested
+     */
+    public int getFailed() {
+        return results.size() - getSucceeded();
+    }
+
+    /**
+     * @return the successfully ingested datasets
+     */
+    public List<DataSet> datasets() {
+        return results.stream()
+                .map(IngestionResult::getDataset)
+                .filter(dataset -> dataset != null)
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,86 @@
+package org.reactome.nursa.ingest;
+
+import org.reactome.nursa.model.DataSet;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * The outcome of ingesting a single dataset.
+ */
+public class IngestionResult {
+
+    private final String doi;
+
+    private final DataSet dataset;
+
+    private final String error;
+
+    private final long elapsedMillis;
+
+    private IngestionResult(String doi, DataSet dataset, String error, long elapsedMillis) {
+        this.doi = doi;
+        this.dataset = dataset;
+        this.error = error;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @param doi the dataset DOI
+     * @param dataset the ingested dataset, or null if SPP does not
+     *      have the dataset
+     * @param elapsedMillis the ingestion time
+     * @return the success result
+     */
+    public static IngestionResult success(String doi, DataSet dataset, long elapsedMillis) {
+        return new IngestionResult(doi, dataset, null, elapsedMillis);
+    }
+
+    /**
+     * @param doi the dataset DOI
+     * @param cause the ingestion error
+     * @param elapsedMillis the ingestion time
+     * @return the failure result
+     */
+    public static IngestionResult failure(String doi, Throwable cause, long elapsedMillis) {
+        String error = cause.getMessage() == null ? cause.toString() : cause.getMessage();
+        return new IngestionResult(doi, null, error, elapsedMillis);
+    }
+
+    /**
+     * @return the dataset DOI
+     */
+    public String getDoi() {
+        return doi;
+    }
+
+    /**
+     * @return the ingested dataset, or null if the ingestion failed
+     *      or SPP does not have the dataset
+     */
+    @JsonIgnore
+    public DataSet getDataset() {
+        return dataset;
+    }
+
+    /**
+     * @return whether the dataset was ingested
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return the error message, or null if the ingestion succeeded
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return the ingestion time in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+}
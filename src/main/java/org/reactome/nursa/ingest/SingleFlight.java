@@ -0,0 +1,78 @@
+package org.reactome.nursa.ingest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import org.reactome.nursa.controller.NursaException;
+
+/**
+ * Coalesces concurrent executions of the same keyed task.
+ *
+ * The first caller for a key runs the task in its own thread. Callers
+ * which arrive while that task is in flight wait for and share its
+ * result or exception instead of running the task again.
+ *
+ * @param <K> the task key type
+ * @param <V> the task result type
+ */
+public class SingleFlight<K, V> {
+
+    private static final String WAIT_HALTED_ERROR_MSG = "Waiting for the in-flight task halted: ";
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight =
+            new ConcurrentHashMap<K, CompletableFuture<V>>();
+
+    /**
+     * Runs the given task, or joins the in-flight task for the same key.
+     *
+     * @param key the task key
+     * @param task the task
+     * @return the task result
+     * @throws NursaException if the waiting thread is interrupted
+     */
+    public V execute(K key, Supplier<V> task) {
+        CompletableFuture<V> future = new CompletableFuture<V>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return await(key, existing);
+        }
+        try {
+            V value = task.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * @return the number of tasks in flight
+     */
+    public int size() {
+        return inFlight.size();
+    }
+
+    private V await(K key, CompletableFuture<V> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new NursaException(WAIT_HALTED_ERROR_MSG + key);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new NursaException(WAIT_HALTED_ERROR_MSG + key, e);
+        }
+    }
+
+}
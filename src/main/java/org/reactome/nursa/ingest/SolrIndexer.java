@@ -0,0 +1,260 @@
+package org.reactome.nursa.ingest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.log4j.Logger;
+import org.apache.solr.common.SolrInputDocument;
+import org.reactome.nursa.controller.NursaException;
+import org.reactome.nursa.dao.NursaFileCache;
+import org.reactome.nursa.dao.NursaSolrClient;
+import org.reactome.nursa.dao.NursaSolrException;
+import org.reactome.nursa.metrics.MetricsRegistry;
+import org.reactome.nursa.model.DataSet;
+import org.reactome.nursa.model.Experiment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Pushes the cached datasets to the Solr search core in the background.
+ *
+ * Each newly cached dataset DOI is queued for indexing. A single worker
+ * thread drains the queue in batches of up to the configured size,
+ * waiting up to the batch delay for a batch to fill, reads the batch
+ * dataset files, and sends each batch as one Solr update with the
+ * configured commit-within time. Only the DOIs are queued, so a
+ * reindex of the whole cache holds at most a batch of datasets in
+ * memory. A dataset which is queued again before it is sent is sent
+ * once. A failed batch is retried with jittered exponential backoff,
+ * and is dropped after the last retry.
+ */
+@Component
+public class SolrIndexer {
+
+    private static final Logger logger = Logger.getLogger(SolrIndexer.class);
+
+    @Value("${nursa.solr.index.enabled}")
+    private boolean enabled;
+
+    @Value("${nursa.solr.index.batch.size}")
+    private int batchSize;
+
+    @Value("${nursa.solr.index.batch.delay.ms}")
+    private long batchDelayMillis;
+
+    @Value("${nursa.solr.index.commit.within.ms}")
+    private int commitWithinMillis;
+
+    @Value("${nursa.solr.index.max.retries}")
+    private int maxRetries;
+
+    @Value("${nursa.solr.index.retry.backoff.ms}")
+    private long retryBackoffMillis;
+
+    @Autowired
+    private NursaSolrClient solrClient;
+
+    @Autowired
+    private NursaFileCache fileCache;
+
+    /** The DOIs of the datasets to index. */
+    private final BlockingQueue<String> queue = new LinkedBlockingQueue<String>();
+
+    private final LongAdder indexed = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private Thread worker;
+
+    @Autowired
+    private MetricsRegistry metrics;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        metrics.gauge("nursa_solr_index_pending", "The number of datasets waiting to be indexed.",
+                this::getPending);
+        metrics.counter("nursa_solr_index_indexed_total", "The number of datasets indexed in Solr.",
+                this::getIndexed);
+        metrics.counter("nursa_solr_index_failed_total",
+                "The number of datasets dropped after the last Solr update retry.",
+                this::getFailed);
+        fileCache.addListener(this::enqueue);
+        worker = new Thread(this::run, "nursa-solr-indexer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * Queues the given dataset for indexing.
+     *
+     * @param dataset the dataset to index
+     */
+    public void enqueue(DataSet dataset) {
+        if (enabled) {
+            queue.add(dataset.getDoi());
+        }
+    }
+
+    /**
+     * Queues every cached dataset for indexing. The dataset files are
+     * read a batch at a time as the queue is drained.
+     *
+     * @return the number of queued datasets
+     */
+    public int reindex() {
+        if (!enabled) {
+            return 0;
+        }
+        List<String> dois;
+        try {
+            dois = fileCache.getDataSetDois();
+        } catch (NursaException e) {
+            logger.warn("No cached datasets to reindex: " + e.getMessage());
+            return 0;
+        }
+        queue.addAll(dois);
+        logger.info("Queued " + dois.size() + " cached datasets for Solr reindexing.");
+        return dois.size();
+    }
+
+    /**
+     * @return the number of datasets waiting to be indexed
+     */
+    public int getPending() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of datasets indexed since startup
+     */
+    public long getIndexed() {
+        return indexed.sum();
+    }
+
+    /**
+     * @return the number of datasets dropped after the last retry
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<DataSet> batch = read(nextBatch());
+                if (!batch.isEmpty()) {
+                    send(batch);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Shutting down.
+        }
+    }
+
+    /**
+     * Waits for a DOI, then collects up to a batch of DOIs within the
+     * batch delay.
+     *
+     * @return the distinct DOIs, in queue order
+     */
+    private Set<String> nextBatch() throws InterruptedException {
+        Set<String> batch = new LinkedHashSet<String>();
+        batch.add(queue.take());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchDelayMillis);
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            String next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    /**
+     * Reads the current cached datasets. A dataset file which cannot be
+     * read, e.g. because it was removed, is logged and skipped.
+     *
+     * @param dois the DOIs
+     * @return the datasets
+     */
+    private List<DataSet> read(Set<String> dois) {
+        List<DataSet> datasets = new ArrayList<DataSet>(dois.size());
+        for (String doi: dois) {
+            try {
+                datasets.add(fileCache.readDataSet(doi));
+            } catch (NursaException e) {
+                failed.increment();
+                logger.error("Cached dataset " + doi + " could not be read for indexing", e);
+            }
+        }
+        return datasets;
+    }
+
+    private void send(List<DataSet> batch) throws InterruptedException {
+        List<SolrInputDocument> documents = new ArrayList<SolrInputDocument>(batch.size());
+        for (DataSet dataset: batch) {
+            documents.add(asDocument(dataset));
+        }
+        for (int attempt = 0; ; attempt++) {
+            try {
+                solrClient.add(documents, commitWithinMillis);
+                indexed.add(documents.size());
+                logger.info("Indexed " + documents.size() + " datasets in Solr.");
+                return;
+            } catch (NursaSolrException e) {
+                if (attempt >= maxRetries) {
+                    failed.add(documents.size());
+                    logger.error("Dropped a Solr update of " + documents.size() + " datasets", e);
+                    return;
+                }
+                logger.warn("Retrying the Solr update after: " + e.getMessage());
+                // Full jitter: a random delay up to the exponential bound.
+                long bound = retryBackoffMillis << Math.min(attempt, 16);
+                Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+            }
+        }
+    }
+
+    private static SolrInputDocument asDocument(DataSet dataset) {
+        SolrInputDocument document = new SolrInputDocument();
+        document.addField("doi", dataset.getDoi());
+        document.addField("name", dataset.getName());
+        document.addField("description", dataset.getDescription());
+        List<Experiment> experiments = dataset.getExperiments();
+        int experimentCount = experiments == null ? 0 : experiments.size();
+        document.addField("experimentCount", experimentCount);
+        if (experiments != null) {
+            experiments.stream()
+                .map(Experiment::getSpecies)
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(species -> document.addField("species", species));
+        }
+        return document;
+    }
+
+}
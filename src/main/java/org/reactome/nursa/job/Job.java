@@ -0,0 +1,195 @@
+package org.reactome.nursa.job;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.reactome.nursa.ingest.IngestionListener;
+import org.reactome.nursa.ingest.IngestionResult;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * A long-running operation which runs on the {@link JobManager}
+ * executor.
+ *
+ * The job is the ingestion listener of its operation, so the job
+ * status reports the per-dataset results as they complete. The
+ * operation result is not part of the status.
+ */
+public class Job implements IngestionListener {
+
+    /** The job lifecycle states. */
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED;
+    }
+
+    private final String id;
+
+    private final String operation;
+
+    private final Date submitted = new Date();
+
+    private volatile Date started;
+
+    private volatile Date finished;
+
+    private volatile Status status = Status.QUEUED;
+
+    /** The number of datasets, or -1 if not yet known. */
+    private volatile int total = -1;
+
+    private final AtomicInteger completed = new AtomicInteger();
+
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private final List<IngestionResult> results = new ArrayList<IngestionResult>();
+
+    private volatile String error;
+
+    private volatile Object result;
+
+    private final CompletableFuture<Void> done = new CompletableFuture<Void>();
+
+    Job(String id, String operation) {
+        this.id = id;
+        this.operation = operation;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the operation description
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Date getSubmitted() {
+        return submitted;
+    }
+
+    /**
+     * @return the start time, or null if the job is queued
+     */
+    public Date getStarted() {
+        return started;
+    }
+
+    /**
+     * @return the finish time, or null if the job is not done
+     */
+    public Date getFinished() {
+        return finished;
+    }
+
+    /**
+     * @return the number of datasets in the operation, or -1 if
+     *      not yet known
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the number of completed datasets
+     */
+    public int getCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * @return the number of failed datasets
+     */
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return the completed dataset results, in completion order
+     */
+    public List<IngestionResult> getResults() {
+        synchronized (results) {
+            return new ArrayList<IngestionResult>(results);
+        }
+    }
+
+    /**
+     * @return the job error message, or null if the job has not failed
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return the operation result, or null if the job has not succeeded
+     */
+    @JsonIgnore
+    public Object getResult() {
+        return result;
+    }
+
+    /**
+     * @return whether the job has succeeded or failed
+     */
+    @JsonIgnore
+    public boolean isDone() {
+        return done.isDone();
+    }
+
+    /**
+     * Runs the given action when the job is done, or immediately if
+     * the job is already done.
+     *
+     * @param action the completion action
+     */
+    public void whenDone(Runnable action) {
+        done.thenRun(action);
+    }
+
+    @Override
+    public void submitted(int total) {
+        this.total = total;
+    }
+
+    @Override
+    public void completed(IngestionResult result) {
+        synchronized (results) {
+            results.add(result);
+        }
+        if (!result.isSuccess()) {
+            failed.incrementAndGet();
+        }
+        completed.incrementAndGet();
+    }
+
+    void start() {
+        started = new Date();
+        status = Status.RUNNING;
+    }
+
+    void succeed(Object result) {
+        this.result = result;
+        finish(Status.SUCCEEDED);
+    }
+
+    void fail(Throwable cause) {
+        error = cause.getMessage() == null ? cause.toString() : cause.getMessage();
+        finish(Status.FAILED);
+    }
+
+    private void finish(Status status) {
+        finished = new Date();
+        this.status = status;
+        done.complete(null);
+    }
+
+}
@@ -0,0 +1,104 @@
+package org.reactome.nursa.job;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the long-running operations as {@link Job}s on a dedicated
+ * executor, so that the request threads are not blocked.
+ *
+ * Finished jobs are kept for the configured retention time, after
+ * which their status is no longer available.
+ */
+@Component
+public class JobManager {
+
+    private static final Logger logger = Logger.getLogger(JobManager.class);
+
+    @Value("${nursa.job.threads}")
+    private int threadCount;
+
+    @Value("${nursa.job.retention.minutes}")
+    private long retentionMinutes;
+
+    private ExecutorService executor;
+
+    /** The {id: job} map. */
+    private final Map<String, Job> jobs = new ConcurrentHashMap<String, Job>();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "nursa-job-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = Executors.newFixedThreadPool(threadCount, factory);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues the given operation.
+     *
+     * @param operation the operation description
+     * @param task the operation, which is passed its job as the
+     *      ingestion listener and returns the job result
+     * @return the queued job
+     */
+    public Job submit(String operation, Function<Job, Object> task) {
+        purge();
+        Job job = new Job(UUID.randomUUID().toString(), operation);
+        jobs.put(job.getId(), job);
+        executor.execute(() -> {
+            job.start();
+            try {
+                job.succeed(task.apply(job));
+            } catch (Throwable e) {
+                // Catch errors as well, since otherwise the job would
+                // stay running forever.
+                logger.error("Job " + job.getId() + " failed: " + operation, e);
+                job.fail(e);
+            }
+        });
+        logger.info("Submitted job " + job.getId() + ": " + operation);
+
+        return job;
+    }
+
+    /**
+     * @param id the job id
+     * @return the job, or null if there is no such job
+     */
+    public Job getJob(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * Removes the jobs which finished before the retention time.
+     */
+    private void purge() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(retentionMinutes);
+        jobs.values().removeIf(job ->
+                job.getFinished() != null && job.getFinished().getTime() < cutoff);
+    }
+
+}
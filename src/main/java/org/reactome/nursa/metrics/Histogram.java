@@ -0,0 +1,86 @@
+package org.reactome.nursa.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free fixed-bucket histogram.
+ *
+ * Each bucket is a striped counter, so concurrent observations do not
+ * contend. The bucket counts are not cumulative; the cumulative
+ * Prometheus buckets are computed when the histogram is written.
+ */
+public class Histogram {
+
+    /** The default latency bucket upper bounds in seconds. */
+    public static final double[] LATENCY_BUCKETS = {
+        0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120
+    };
+
+    private final double[] bounds;
+
+    /** The per-bucket counts, with the overflow bucket last. */
+    private final LongAdder[] counts;
+
+    private final DoubleAdder sum = new DoubleAdder();
+
+    /**
+     * @param bounds the ascending bucket upper bounds
+     */
+    public Histogram(double[] bounds) {
+        this.bounds = bounds.clone();
+        this.counts = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param value the observed value
+     */
+    public void observe(double value) {
+        int i = Arrays.binarySearch(bounds, value);
+        // A value equal to a bound is in that bound's bucket.
+        counts[i < 0 ? -i - 1 : i].increment();
+        sum.add(value);
+    }
+
+    /**
+     * Records the time since the given start.
+     *
+     * @param startNanos the {@link System#nanoTime()} start time
+     */
+    public void observeSince(long startNanos) {
+        observe((double) (System.nanoTime() - startNanos) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * @return the bucket upper bounds
+     */
+    double[] getBounds() {
+        return bounds;
+    }
+
+    /**
+     * @return the cumulative bucket counts, ending with the total count
+     */
+    long[] getCumulativeCounts() {
+        long[] cumulative = new long[counts.length];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            total += counts[i].sum();
+            cumulative[i] = total;
+        }
+        return cumulative;
+    }
+
+    /**
+     * @return the sum of the observed values
+     */
+    double getSum() {
+        return sum.sum();
+    }
+
+}
@@ -0,0 +1,217 @@
+package org.reactome.nursa.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * The service metrics, which are written in the Prometheus text
+ * exposition format.
+ *
+ * A metric is named by its family name and label name/value pairs. The
+ * counters and histograms are striped, so recording is lock-free; a
+ * caller on a hot path can keep the returned metric rather than look it
+ * up on each use. Gauges are read from their supplier when the metrics
+ * are written, as are the counters which are read from a component's
+ * own counter.
+ */
+@Component
+public class MetricsRegistry {
+
+    /** The Prometheus text format content type. */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private enum Type {
+        COUNTER, GAUGE, HISTOGRAM;
+    }
+
+    /** The metrics which share a name. */
+    private static class Family {
+        final String name;
+
+        final String help;
+
+        final Type type;
+
+        /** The {rendered labels: metric} map. */
+        final Map<String, Object> metrics = new ConcurrentHashMap<String, Object>();
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    /** The {name: family} map. */
+    private final Map<String, Family> families = new ConcurrentHashMap<String, Family>();
+
+    /**
+     * @param name the counter name, which should end in {@code _total}
+     * @param help the counter description
+     * @param labels the label name/value pairs
+     * @return the counter
+     */
+    public LongAdder counter(String name, String help, String... labels) {
+        return (LongAdder) get(name, help, Type.COUNTER, labels, LongAdder::new);
+    }
+
+    /**
+     * Registers or replaces a counter which is read from the given
+     * monotonic value, e.g. a component's own counter.
+     *
+     * @param name the counter name, which should end in {@code _total}
+     * @param help the counter description
+     * @param value the counter value supplier
+     * @param labels the label name/value pairs
+     */
+    public void counter(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.COUNTER).metrics.put(formatLabels(labels), value);
+    }
+
+    /**
+     * @param name the histogram name
+     * @param help the histogram description
+     * @param buckets the ascending bucket upper bounds, which are used
+     *      when the histogram is created
+     * @param labels the label name/value pairs
+     * @return the histogram
+     */
+    public Histogram histogram(String name, String help, double[] buckets, String... labels) {
+        return (Histogram) get(name, help, Type.HISTOGRAM, labels, () -> new Histogram(buckets));
+    }
+
+    /**
+     * @param name the latency histogram name, which should end in
+     *      {@code _seconds}
+     * @param help the histogram description
+     * @param labels the label name/value pairs
+     * @return the histogram with the {@link Histogram#LATENCY_BUCKETS}
+     */
+    public Histogram timer(String name, String help, String... labels) {
+        return histogram(name, help, Histogram.LATENCY_BUCKETS, labels);
+    }
+
+    /**
+     * Registers or replaces a gauge.
+     *
+     * @param name the gauge name
+     * @param help the gauge description
+     * @param value the gauge value supplier
+     * @param labels the label name/value pairs
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).metrics.put(formatLabels(labels), value);
+    }
+
+    /**
+     * Writes the metrics in the Prometheus text format, sorted by
+     * name and labels.
+     *
+     * @param writer the target
+     * @throws IOException if the metrics could not be written
+     */
+    public void write(Writer writer) throws IOException {
+        for (Family family: new TreeMap<String, Family>(families).values()) {
+            writer.write("# HELP " + family.name + " " + family.help + "\n");
+            writer.write("# TYPE " + family.name + " " + family.type.name().toLowerCase(Locale.ROOT) + "\n");
+            for (Map.Entry<String, Object> entry: new TreeMap<String, Object>(family.metrics).entrySet()) {
+                write(family, entry.getKey(), entry.getValue(), writer);
+            }
+        }
+        writer.flush();
+    }
+
+    private static void write(Family family, String labels, Object metric, Writer writer)
+            throws IOException {
+        switch (family.type) {
+        case COUNTER:
+            double total = metric instanceof LongAdder ?
+                    ((LongAdder) metric).sum() : ((DoubleSupplier) metric).getAsDouble();
+            writeSample(family.name, labels, total, writer);
+            break;
+        case GAUGE:
+            writeSample(family.name, labels, ((DoubleSupplier) metric).getAsDouble(), writer);
+            break;
+        case HISTOGRAM:
+            Histogram histogram = (Histogram) metric;
+            double[] bounds = histogram.getBounds();
+            long[] counts = histogram.getCumulativeCounts();
+            String prefix = labels.isEmpty() ? "" : labels + ",";
+            for (int i = 0; i < bounds.length; i++) {
+                writeSample(family.name + "_bucket", prefix + "le=\"" + bounds[i] + "\"",
+                        counts[i], writer);
+            }
+            long count = counts[counts.length - 1];
+            writeSample(family.name + "_bucket", prefix + "le=\"+Inf\"", count, writer);
+            writeSample(family.name + "_sum", labels, histogram.getSum(), writer);
+            writeSample(family.name + "_count", labels, count, writer);
+            break;
+        }
+    }
+
+    private static void writeSample(String name, String labels, double value, Writer writer)
+            throws IOException {
+        writer.write(name);
+        if (!labels.isEmpty()) {
+            writer.write("{" + labels + "}");
+        }
+        writer.write(" ");
+        writer.write(value == Math.rint(value) && !Double.isInfinite(value) ?
+                Long.toString((long) value) : Double.toString(value));
+        writer.write("\n");
+    }
+
+    private Object get(String name, String help, Type type, String[] labels,
+            Supplier<Object> factory) {
+        Map<String, Object> metrics = family(name, help, type).metrics;
+        String key = formatLabels(labels);
+        // Look up before computing, which would lock the map bin.
+        Object metric = metrics.get(key);
+        return metric != null ? metric : metrics.computeIfAbsent(key, k -> factory.get());
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.get(name);
+        if (family == null) {
+            family = families.computeIfAbsent(name, k -> new Family(name, help, type));
+        }
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is a " +
+                    family.type + ", not a " + type);
+        }
+        return family;
+    }
+
+    /**
+     * @param labels the label name/value pairs
+     * @return the {@code name="value",...} labels
+     */
+    private static String formatLabels(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Metric labels are not name/value pairs");
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return sb.toString();
+    }
+
+    private static String escape(String value) {
+        return String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"")
+                .replace("\n", "\\n");
+    }
+
+}
@@ -0,0 +1,179 @@
+package org.reactome.nursa.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Records the named stages of a request.
+ *
+ * The timer is bound to the request thread, so that the service
+ * components record their stages without a timer parameter. A stage
+ * recorded on a thread without a timer, e.g. an ingestion worker, is
+ * ignored. A repeated stage accumulates its count and time. Stages may
+ * nest, in which case the outer stage time includes the inner stage.
+ */
+public class RequestTimer {
+
+    /** The stages are reported in milliseconds. */
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final ThreadLocal<RequestTimer> CURRENT = new ThreadLocal<RequestTimer>();
+
+    /** A no-op stage for a thread without a timer. */
+    private static final Stage NO_STAGE = () -> { };
+
+    /** A started stage, which is recorded when it is closed. */
+    public interface Stage {
+        void close();
+    }
+
+    /** A stage total. */
+    public static class StageTime {
+        private final String name;
+
+        private final int count;
+
+        private final double millis;
+
+        StageTime(String name, int count, double millis) {
+            this.name = name;
+            this.count = count;
+            this.millis = millis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the number of times the stage ran
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return the total stage time in milliseconds
+         */
+        public double getMillis() {
+            return millis;
+        }
+    }
+
+    private final long startNanos = System.nanoTime();
+
+    /** The {name: {count, nanos}} stage totals, in first start order. */
+    private final Map<String, long[]> stages = new LinkedHashMap<String, long[]>();
+
+    /**
+     * @param timer the timer to bind to the current thread, or null to
+     *      unbind the current timer
+     */
+    public static void bind(RequestTimer timer) {
+        if (timer == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(timer);
+        }
+    }
+
+    /**
+     * @return the timer bound to the current thread, or null if none
+     */
+    public static RequestTimer current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Starts a stage of the current thread's request, if any.
+     *
+     * @param name the stage name, which should be a lower-case token,
+     *      e.g. {@code spp-fetch}
+     * @return the stage to close when it is done
+     */
+    public static Stage stage(String name) {
+        RequestTimer timer = CURRENT.get();
+        return timer == null ? NO_STAGE : timer.start(name);
+    }
+
+    /**
+     * Runs the given operation as a stage of the current thread's
+     * request, if any.
+     *
+     * @param name the stage name
+     * @param operation the operation to time
+     * @return the operation result
+     */
+    public static <T> T time(String name, Supplier<T> operation) {
+        Stage stage = stage(name);
+        try {
+            return operation.get();
+        } finally {
+            stage.close();
+        }
+    }
+
+    /**
+     * @param name the stage name
+     * @return the stage to close when it is done
+     */
+    public Stage start(String name) {
+        long start = System.nanoTime();
+        return () -> record(name, System.nanoTime() - start);
+    }
+
+    /**
+     * @param name the stage name
+     * @param nanos the stage time
+     */
+    public synchronized void record(String name, long nanos) {
+        long[] totals = stages.computeIfAbsent(name, key -> new long[2]);
+        totals[0]++;
+        totals[1] += nanos;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} when the timer was created
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * @return the time since the timer was created in milliseconds
+     */
+    public double getElapsedMillis() {
+        return (System.nanoTime() - startNanos) / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @return the stage totals, in first start order
+     */
+    public synchronized List<StageTime> getStages() {
+        List<StageTime> times = new ArrayList<StageTime>(stages.size());
+        stages.forEach((name, totals) ->
+                times.add(new StageTime(name, (int) totals[0], totals[1] / NANOS_PER_MILLI)));
+        return times;
+    }
+
+    /**
+     * @return the {@code Server-Timing} header value, with the stages
+     *      and the elapsed {@code total}
+     */
+    public String getServerTiming() {
+        StringBuilder sb = new StringBuilder();
+        for (StageTime stage: getStages()) {
+            sb.append(stage.getName())
+              .append(String.format(Locale.ROOT, ";dur=%.1f", stage.getMillis()))
+              .append(", ");
+        }
+        return sb.append(String.format(Locale.ROOT, "total;dur=%.1f", getElapsedMillis()))
+                 .toString();
+    }
+
+}
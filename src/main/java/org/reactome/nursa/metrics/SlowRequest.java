@@ -0,0 +1,80 @@
+package org.reactome.nursa.metrics;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The stage breakdown of a request which exceeded the slow request
+ * threshold.
+ */
+public class SlowRequest {
+
+    private final Date time;
+
+    private final String method;
+
+    private final String path;
+
+    private final String query;
+
+    private final int status;
+
+    private final double millis;
+
+    private final List<RequestTimer.StageTime> stages;
+
+    public SlowRequest(Date time, String method, String path, String query,
+            int status, double millis, List<RequestTimer.StageTime> stages) {
+        this.time = time;
+        this.method = method;
+        this.path = path;
+        this.query = query;
+        this.status = status;
+        this.millis = millis;
+        this.stages = stages;
+    }
+
+    /**
+     * @return the request completion time
+     */
+    public Date getTime() {
+        return time;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return the query string, or null if none
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * @return the response status
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the request time in milliseconds
+     */
+    public double getMillis() {
+        return millis;
+    }
+
+    /**
+     * @return the stage totals, in first start order
+     */
+    public List<RequestTimer.StageTime> getStages() {
+        return stages;
+    }
+
+}
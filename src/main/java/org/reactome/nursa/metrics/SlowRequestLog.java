@@ -0,0 +1,61 @@
+package org.reactome.nursa.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * A bounded ring buffer of the most recent slow requests.
+ */
+@Component
+public class SlowRequestLog {
+
+    @Value("${nursa.slow.request.ms}")
+    private long thresholdMillis;
+
+    @Value("${nursa.slow.request.capacity}")
+    private int capacity;
+
+    private SlowRequest[] buffer;
+
+    /** The total number of slow requests, which indexes the next slot. */
+    private long count;
+
+    /**
+     * @return the slow request threshold in milliseconds
+     */
+    public long getThresholdMillis() {
+        return thresholdMillis;
+    }
+
+    /**
+     * Adds the given request, replacing the oldest request if the buffer
+     * is full.
+     *
+     * @param request the slow request
+     */
+    public synchronized void add(SlowRequest request) {
+        if (buffer == null) {
+            buffer = new SlowRequest[Math.max(capacity, 1)];
+        }
+        buffer[(int) (count++ % buffer.length)] = request;
+    }
+
+    /**
+     * @return the buffered slow requests, most recent first
+     */
+    public synchronized List<SlowRequest> getRequests() {
+        List<SlowRequest> requests = new ArrayList<SlowRequest>();
+        if (buffer == null) {
+            return requests;
+        }
+        long oldest = Math.max(0, count - buffer.length);
+        for (long i = count - 1; i >= oldest; i--) {
+            requests.add(buffer[(int) (i % buffer.length)]);
+        }
+        return requests;
+    }
+
+}
@@ -0,0 +1,28 @@
+package org.reactome.nursa.query;
+
+import org.reactome.nursa.model.DataSetSearchResult;
+
+/**
+ * A page of search results in DOI order, with the cursor of the
+ * following page.
+ */
+public class CursorSearchResult extends DataSetSearchResult {
+
+    /** The cursor of the first page. */
+    public static final String START_CURSOR = "*";
+
+    private String nextCursor;
+
+    /**
+     * @return the opaque cursor of the next page, or null if this is
+     *      the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+}
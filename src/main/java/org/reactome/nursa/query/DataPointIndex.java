@@ -0,0 +1,219 @@
+package org.reactome.nursa.query;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import org.reactome.nursa.controller.BadRequestException;
+import org.reactome.nursa.geneset.GeneSetIndex;
+import org.reactome.nursa.model.DataPoint;
+import org.reactome.nursa.model.DisplayableDataPoint;
+
+/**
+ * An immutable set of sort indexes over an experiment's data points.
+ *
+ * The data points are held in sort order by p-value, by absolute fold
+ * change and by symbol, together with their Reactome flags for a given
+ * gene set version. A query walks the requested sort order, skipping
+ * the data points which fail the filters, and stops as soon as the
+ * requested page is filled. When the filter matches the sort order,
+ * i.e. a p-value bound sorted by p-value or a fold change bound sorted
+ * by fold change, the range is found by binary search, so a top-N query
+ * reads only the returned data points.
+ *
+ * A missing, i.e. NaN, p-value or fold change fails its filter bound,
+ * but passes if there is no bound.
+ */
+public class DataPointIndex {
+
+    /** The query sort orders. */
+    public enum Sort {
+        /** The experiment order. */
+        NONE,
+        /** Ascending p-value. */
+        PVALUE,
+        /** Descending absolute fold change. */
+        FOLD_CHANGE,
+        /** Ascending symbol, with missing symbols last. */
+        SYMBOL;
+
+        /**
+         * @param name the sort parameter value, e.g. {@code foldChange}
+         * @return the sort order
+         * @throws BadRequestException if the value is not a sort order
+         */
+        public static Sort parse(String name) {
+            switch (name) {
+            case "pvalue":
+                return PVALUE;
+            case "foldChange":
+                return FOLD_CHANGE;
+            case "symbol":
+                return SYMBOL;
+            default:
+                throw new BadRequestException("Unsupported data points sort: " + name);
+            }
+        }
+    }
+
+    private final List<DataPoint> dataPoints;
+
+    private final String geneSetVersion;
+
+    /** The data points which are in Reactome. */
+    private final BitSet reactome;
+
+    private final int[] byPvalue;
+
+    private final int[] byFoldChange;
+
+    private final int[] bySymbol;
+
+    /**
+     * Builds the indexes. This is an O(n log n) operation.
+     *
+     * @param dataPoints the experiment data points
+     * @param geneSetIndex the Reactome gene sets
+     */
+    public DataPointIndex(List<DataPoint> dataPoints, GeneSetIndex geneSetIndex) {
+        this.dataPoints = dataPoints;
+        this.geneSetVersion = geneSetIndex.getVersion();
+        int size = dataPoints.size();
+        reactome = new BitSet(size);
+        double[] pvalues = new double[size];
+        double[] foldChanges = new double[size];
+        String[] symbols = new String[size];
+        for (int i = 0; i < size; i++) {
+            DataPoint dataPoint = dataPoints.get(i);
+            symbols[i] = dataPoint.getSymbol();
+            pvalues[i] = dataPoint.getPvalue();
+            // A missing fold change sorts last.
+            double foldChange = Math.abs(dataPoint.getFoldChange());
+            foldChanges[i] = Double.isNaN(foldChange) ? -1 : foldChange;
+            if (geneSetIndex.contains(symbols[i])) {
+                reactome.set(i);
+            }
+        }
+        byPvalue = sort(size, (i, j) -> Double.compare(pvalues[i], pvalues[j]));
+        byFoldChange = sort(size, (i, j) -> Double.compare(foldChanges[j], foldChanges[i]));
+        bySymbol = sort(size, (i, j) -> compareSymbols(symbols[i], symbols[j]));
+    }
+
+    private static int[] sort(int size, Comparator<Integer> comparator) {
+        // The boxed sort is stable, so equal keys keep the experiment order.
+        return IntStream.range(0, size)
+                .boxed()
+                .sorted(comparator)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static int compareSymbols(String s1, String s2) {
+        if (s1 == null) {
+            return s2 == null ? 0 : 1;
+        }
+        return s2 == null ? -1 : s1.compareTo(s2);
+    }
+
+    /**
+     * @return the gene set version of the Reactome flags
+     */
+    public String getGeneSetVersion() {
+        return geneSetVersion;
+    }
+
+    /**
+     * @return the number of data points
+     */
+    public int size() {
+        return dataPoints.size();
+    }
+
+    /**
+     * Selects a page of the data points which satisfy the filters.
+     *
+     * @param maxPvalue the inclusive p-value upper bound
+     * @param minAbsFoldChange the inclusive absolute fold change
+     *      lower bound
+     * @param reactomeOnly flag indicating whether to select only the
+     *      data points which are in Reactome
+     * @param sort the sort order
+     * @param offset the number of matching data points to skip
+     * @param limit the maximum number of data points to return
+     * @return the matching data points
+     */
+    public List<DisplayableDataPoint> query(double maxPvalue, double minAbsFoldChange,
+            boolean reactomeOnly, Sort sort, int offset, int limit) {
+        int[] order;
+        int end = dataPoints.size();
+        switch (sort) {
+        case PVALUE:
+            order = byPvalue;
+            end = upperBound(order, i -> matchesPvalue(dataPoints.get(i), maxPvalue));
+            break;
+        case FOLD_CHANGE:
+            order = byFoldChange;
+            end = upperBound(order,
+                    i -> matchesFoldChange(dataPoints.get(i), minAbsFoldChange));
+            break;
+        case SYMBOL:
+            order = bySymbol;
+            break;
+        default:
+            order = null;
+        }
+        List<DisplayableDataPoint> selected = new ArrayList<DisplayableDataPoint>(
+                Math.min(limit, Math.min(end, 1024)));
+        int skipped = 0;
+        for (int k = 0; k < end && selected.size() < limit; k++) {
+            int i = order == null ? k : order[k];
+            boolean isReactome = reactome.get(i);
+            if (reactomeOnly && !isReactome) {
+                continue;
+            }
+            DataPoint dataPoint = dataPoints.get(i);
+            if (!matchesPvalue(dataPoint, maxPvalue) ||
+                    !matchesFoldChange(dataPoint, minAbsFoldChange)) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            selected.add(new DisplayableDataPoint(dataPoint, isReactome));
+        }
+
+        return selected;
+    }
+
+    private static boolean matchesPvalue(DataPoint dataPoint, double maxPvalue) {
+        return maxPvalue == Double.POSITIVE_INFINITY || dataPoint.getPvalue() <= maxPvalue;
+    }
+
+    private static boolean matchesFoldChange(DataPoint dataPoint, double minAbsFoldChange) {
+        return minAbsFoldChange <= 0 || Math.abs(dataPoint.getFoldChange()) >= minAbsFoldChange;
+    }
+
+    /**
+     * @return the length of the leading run of the sort order whose
+     *      data points satisfy the predicate, which must be monotone
+     *      in the sort order
+     */
+    private static int upperBound(int[] order, IntPredicate predicate) {
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (predicate.test(order[mid])) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+}
@@ -0,0 +1,137 @@
+package org.reactome.nursa.query;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.reactome.nursa.controller.NursaException;
+import org.reactome.nursa.dao.NursaFileCache;
+import org.reactome.nursa.geneset.GeneSetIndex;
+import org.reactome.nursa.metrics.RequestTimer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Prepares the displayable data points files of several experiments in
+ * parallel.
+ *
+ * The files are prepared on a pool of the configured size, which is
+ * shared by the concurrent batches, so that a large batch does not
+ * starve the request threads or the disk.
+ */
+@Component
+public class DisplayableLoader {
+
+    private static final String LOAD_ERROR_MSG = "Could not load the experiment data points: ";
+
+    @Value("${nursa.batch.threads}")
+    private int threadCount;
+
+    @Autowired
+    private NursaFileCache fileCache;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "nursa-batch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = Executors.newFixedThreadPool(threadCount, factory);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Receives a prepared displayable file.
+     */
+    public interface FileConsumer {
+        /**
+         * @param key the experiment
+         * @param file the {@link NursaFileCache#getDisplayableFile} file
+         * @throws IOException if the file could not be consumed
+         */
+        void accept(ExperimentKey key, File file) throws IOException;
+    }
+
+    /**
+     * Prepares the displayable files of the given experiments in
+     * parallel, and passes each file to the consumer in experiment
+     * order as soon as it and the files before it are ready. If an
+     * experiment or the consumer fails, then the remaining experiments
+     * are cancelled.
+     *
+     * @param experiments the experiments
+     * @param index the Reactome gene set index
+     * @param consumer the file consumer, which is called on the
+     *      calling thread
+     * @throws NursaException if an experiment file could not be
+     *      prepared
+     * @throws IOException if the consumer failed
+     */
+    public void load(List<ExperimentKey> experiments, GeneSetIndex index,
+            FileConsumer consumer) throws IOException {
+        List<Future<File>> futures = new ArrayList<Future<File>>(experiments.size());
+        for (ExperimentKey key: experiments) {
+            futures.add(executor.submit(() ->
+                    fileCache.getDisplayableFile(key.getDoi(), key.getExperimentId(), index)));
+        }
+        boolean isDone = false;
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                consumer.accept(experiments.get(i), await(futures.get(i)));
+            }
+            isDone = true;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof NursaException) {
+                throw (NursaException) e.getCause();
+            }
+            throw new NursaException(LOAD_ERROR_MSG + experiments, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NursaException(LOAD_ERROR_MSG + experiments, e);
+        } finally {
+            if (!isDone) {
+                cancel(futures);
+            }
+        }
+    }
+
+    /**
+     * Waits for the given file, timing the wait as the request
+     * {@code displayable} stage.
+     */
+    private static File await(Future<File> future)
+            throws ExecutionException, InterruptedException {
+        RequestTimer.Stage stage = RequestTimer.stage("displayable");
+        try {
+            return future.get();
+        } finally {
+            stage.close();
+        }
+    }
+
+    private static void cancel(List<Future<File>> futures) {
+        for (Future<File> future: futures) {
+            future.cancel(true);
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package org.reactome.nursa.query;
+
+import java.util.Objects;
+
+/**
+ * A dataset experiment reference.
+ */
+public class ExperimentKey {
+
+    private String doi;
+
+    private Integer experimentId;
+
+    public ExperimentKey() {
+    }
+
+    public ExperimentKey(String doi, Integer experimentId) {
+        this.doi = doi;
+        this.experimentId = experimentId;
+    }
+
+    public String getDoi() {
+        return doi;
+    }
+
+    public void setDoi(String doi) {
+        this.doi = doi;
+    }
+
+    public Integer getExperimentId() {
+        return experimentId;
+    }
+
+    public void setExperimentId(Integer experimentId) {
+        this.experimentId = experimentId;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof ExperimentKey)) {
+            return false;
+        }
+        ExperimentKey key = (ExperimentKey) other;
+        return Objects.equals(experimentId, key.experimentId) && Objects.equals(doi, key.doi);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(doi, experimentId);
+    }
+
+    @Override
+    public String toString() {
+        return doi + ":" + experimentId;
+    }
+
+}
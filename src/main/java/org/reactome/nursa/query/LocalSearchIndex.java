@@ -0,0 +1,278 @@
+package org.reactome.nursa.query;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.log4j.Logger;
+import org.reactome.nursa.controller.BadRequestException;
+import org.reactome.nursa.dao.NursaFileCache;
+import org.reactome.nursa.model.DataSet;
+import org.reactome.nursa.model.DataSetSearchResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * An embedded full-text index over the cached datasets, which answers
+ * the {@code /search} query when Solr is not used or not available.
+ *
+ * The query semantics follow the Solr {@code doi:term OR term} query: a
+ * dataset matches if its DOI is the term or if any term word is in its
+ * name or description. The words are the lower-case letter and digit
+ * runs; there is no stemming. Matches are ranked by the summed inverse
+ * document frequency of the matched words, with name words counting
+ * double, and a DOI match ranks first.
+ *
+ * The index is built from the local dataset cache in the background at
+ * startup, and a dataset is reindexed whenever it is cached.
+ */
+@Component
+public class LocalSearchIndex {
+
+    private static final Logger logger = Logger.getLogger(LocalSearchIndex.class);
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    /** The score of a DOI match, which exceeds any word score. */
+    private static final double DOI_MATCH_SCORE = 1e6;
+
+    private static final double NAME_WEIGHT = 2.0;
+
+    /** The local cursor prefix, which tells local and Solr cursors apart. */
+    private static final String CURSOR_PREFIX = "local:";
+
+    private static final String INVALID_CURSOR_MSG = "Invalid local search cursor: ";
+
+    @Autowired
+    private NursaFileCache fileCache;
+
+    /** The {doi: document} store. */
+    private final Map<String, Document> documents = new ConcurrentHashMap<String, Document>();
+
+    /** The {word: DOIs} postings. */
+    private final Map<String, Set<String>> postings = new ConcurrentHashMap<String, Set<String>>();
+
+    /** An indexed dataset. */
+    private static class Document {
+        final DataSet dataset;
+
+        final Set<String> nameWords;
+
+        final Set<String> descriptionWords;
+
+        Document(DataSet dataset) {
+            this.dataset = dataset;
+            this.nameWords = words(dataset.getName());
+            this.descriptionWords = words(dataset.getDescription());
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        fileCache.addListener(this::add);
+        Thread loader = new Thread(this::load, "nursa-search-init");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void load() {
+        // A dataset which was cached in the meantime is current.
+        int count = fileCache.readDataSets(doi -> !documents.containsKey(doi), this::add);
+        logger.info("Indexed " + count + " datasets for local search.");
+    }
+
+    /**
+     * Adds or replaces the given dataset. The updates are serialized,
+     * while searches proceed concurrently.
+     *
+     * @param dataset the dataset
+     */
+    public synchronized void add(DataSet dataset) {
+        // Only the searched and returned fields are retained.
+        DataSet summary = new DataSet();
+        summary.setDoi(dataset.getDoi());
+        summary.setName(dataset.getName());
+        summary.setDescription(dataset.getDescription());
+        Document document = new Document(summary);
+        Document previous = documents.put(summary.getDoi(), document);
+        if (previous != null) {
+            removePostings(previous);
+        }
+        for (String word: document.nameWords) {
+            addPosting(word, summary.getDoi());
+        }
+        for (String word: document.descriptionWords) {
+            addPosting(word, summary.getDoi());
+        }
+    }
+
+    /**
+     * @return the number of indexed datasets
+     */
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * Searches for the given term in the dataset doi, name and description.
+     *
+     * @param term the search term
+     * @param start the index of the first match to return (default 0)
+     * @param size the number of matches to return (default all)
+     * @return the ranked {doi, name, description} matches
+     */
+    public DataSetSearchResult search(String term, Optional<Integer> start,
+            Optional<Integer> size) {
+        Map<String, Double> scores = score(term);
+        Comparator<Map.Entry<String, Double>> byScore =
+                Map.Entry.<String, Double>comparingByValue().reversed();
+        List<DataSet> ranked = scores.entrySet().stream()
+                .sorted(byScore.thenComparing(Map.Entry.comparingByKey()))
+                .skip(start.orElse(0))
+                .limit(size.orElse(Integer.MAX_VALUE))
+                .map(entry -> documents.get(entry.getKey()))
+                .filter(document -> document != null)
+                .map(document -> document.dataset)
+                .collect(Collectors.toList());
+        DataSetSearchResult result = new DataSetSearchResult();
+        result.setNumFound(scores.size());
+        result.setDatasets(ranked);
+
+        return result;
+    }
+
+    /**
+     * Searches for the given term, returning the matches in DOI order
+     * after the given cursor.
+     *
+     * @param term the search term
+     * @param cursor the cursor returned with the previous page, or
+     *      {@link CursorSearchResult#START_CURSOR} for the first page
+     * @param size the number of matches to return
+     * @return the matches and the next page cursor
+     * @throws BadRequestException if the cursor is not a local search
+     *      cursor
+     */
+    public CursorSearchResult search(String term, String cursor, int size) {
+        String after = CursorSearchResult.START_CURSOR.equals(cursor) ? null : decodeCursor(cursor);
+        Map<String, Double> scores = score(term);
+        List<DataSet> page = scores.keySet().stream()
+                .filter(doi -> after == null || doi.compareTo(after) > 0)
+                .sorted()
+                .limit(size)
+                .map(documents::get)
+                .filter(document -> document != null)
+                .map(document -> document.dataset)
+                .collect(Collectors.toList());
+        CursorSearchResult result = new CursorSearchResult();
+        result.setNumFound(scores.size());
+        result.setDatasets(page);
+        if (page.size() == size) {
+            result.setNextCursor(encodeCursor(page.get(page.size() - 1).getDoi()));
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the {doi: score} matches
+     */
+    private Map<String, Double> score(String term) {
+        Map<String, Double> scores = new HashMap<String, Double>();
+        if (documents.containsKey(term)) {
+            scores.put(term, DOI_MATCH_SCORE);
+        }
+        int total = Math.max(documents.size(), 1);
+        for (String word: words(term)) {
+            Set<String> dois = postings.get(word);
+            if (dois == null || dois.isEmpty()) {
+                continue;
+            }
+            double idf = 1 + Math.log((double) total / dois.size());
+            for (String doi: dois) {
+                Document document = documents.get(doi);
+                if (document == null) {
+                    continue;
+                }
+                double weight = (document.nameWords.contains(word) ? NAME_WEIGHT : 0) +
+                        (document.descriptionWords.contains(word) ? 1 : 0);
+                scores.merge(doi, idf * weight, Double::sum);
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * @param cursor the page cursor
+     * @return whether the cursor was returned by this index, rather
+     *      than by Solr
+     */
+    public static boolean isLocalCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor),
+                    StandardCharsets.UTF_8);
+            return decoded.startsWith(CURSOR_PREFIX);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String encodeCursor(String doi) {
+        byte[] bytes = (CURSOR_PREFIX + doi).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static String decodeCursor(String cursor) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(INVALID_CURSOR_MSG + cursor, e);
+        }
+        if (!decoded.startsWith(CURSOR_PREFIX)) {
+            throw new BadRequestException(INVALID_CURSOR_MSG + cursor);
+        }
+        return decoded.substring(CURSOR_PREFIX.length());
+    }
+
+    private void addPosting(String word, String doi) {
+        postings.computeIfAbsent(word, key -> ConcurrentHashMap.newKeySet()).add(doi);
+    }
+
+    private void removePostings(Document document) {
+        String doi = document.dataset.getDoi();
+        Set<String> words = new LinkedHashSet<String>(document.nameWords);
+        words.addAll(document.descriptionWords);
+        for (String word: words) {
+            Set<String> dois = postings.get(word);
+            if (dois != null) {
+                dois.remove(doi);
+            }
+        }
+    }
+
+    private static Set<String> words(String text) {
+        Set<String> words = new LinkedHashSet<String>();
+        if (text != null) {
+            Matcher matcher = WORD.matcher(text.toLowerCase(Locale.ROOT));
+            while (matcher.find()) {
+                words.add(matcher.group());
+            }
+        }
+        return words;
+    }
+
+}
@@ -0,0 +1,25 @@
+package org.reactome.nursa.query;
+
+/**
+ * A dataset typeahead suggestion.
+ */
+public class Suggestion {
+
+    private final String doi;
+
+    private final String name;
+
+    public Suggestion(String doi, String name) {
+        this.doi = doi;
+        this.name = name;
+    }
+
+    public String getDoi() {
+        return doi;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+}
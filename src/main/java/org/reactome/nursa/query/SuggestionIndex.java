@@ -0,0 +1,153 @@
+package org.reactome.nursa.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.log4j.Logger;
+import org.reactome.nursa.dao.NursaFileCache;
+import org.reactome.nursa.model.DataSet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * An in-memory prefix index over the cached dataset DOIs and names.
+ *
+ * Each dataset is keyed on its lower-case DOI, the DOI id after the
+ * registrant, and the lower-case name from the start of each name
+ * word, so that a prefix matches any word of the name. The keys are
+ * held in a sorted concurrent map, and a lookup reads the key range
+ * which starts with the prefix.
+ *
+ * The index is built from the local dataset cache in the background at
+ * startup, and a dataset is reindexed whenever it is cached.
+ */
+@Component
+public class SuggestionIndex {
+
+    private static final Logger logger = Logger.getLogger(SuggestionIndex.class);
+
+    /** The maximum key length. Longer prefixes are checked against the name. */
+    private static final int MAX_KEY_LENGTH = 64;
+
+    /** The key and DOI separator, which sorts before any key character. */
+    private static final char SEPARATOR = '\u0000';
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    @Autowired
+    private NursaFileCache fileCache;
+
+    /** The {key SEPARATOR doi: suggestion} index. */
+    private final NavigableMap<String, Suggestion> index =
+            new ConcurrentSkipListMap<String, Suggestion>();
+
+    /** The {doi: keys} map used to replace a reindexed dataset's keys. */
+    private final Map<String, Set<String>> datasetKeys =
+            new ConcurrentHashMap<String, Set<String>>();
+
+    @PostConstruct
+    public void init() {
+        fileCache.addListener(this::add);
+        Thread loader = new Thread(this::load, "nursa-suggest-init");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void load() {
+        // A dataset which was cached in the meantime is current.
+        int count = fileCache.readDataSets(doi -> !datasetKeys.containsKey(doi), this::add);
+        logger.info("Indexed " + count + " datasets for suggestions.");
+    }
+
+    /**
+     * Adds or replaces the given dataset suggestion keys. The updates
+     * are serialized, while lookups proceed concurrently.
+     *
+     * @param dataset the dataset
+     */
+    public synchronized void add(DataSet dataset) {
+        String doi = dataset.getDoi();
+        Suggestion suggestion = new Suggestion(doi, dataset.getName());
+        Set<String> keys = new LinkedHashSet<String>();
+        String lowerDoi = doi.toLowerCase(Locale.ROOT);
+        keys.add(lowerDoi);
+        keys.add(lowerDoi.substring(lowerDoi.indexOf('/') + 1));
+        if (dataset.getName() != null) {
+            String lowerName = dataset.getName().toLowerCase(Locale.ROOT);
+            Matcher matcher = WORD.matcher(lowerName);
+            while (matcher.find()) {
+                int start = matcher.start();
+                int end = Math.min(lowerName.length(), start + MAX_KEY_LENGTH);
+                keys.add(lowerName.substring(start, end));
+            }
+        }
+        Set<String> entries = new LinkedHashSet<String>();
+        for (String key: keys) {
+            String entry = truncate(key) + SEPARATOR + doi;
+            entries.add(entry);
+            index.put(entry, suggestion);
+        }
+        Set<String> previous = datasetKeys.put(doi, entries);
+        if (previous != null) {
+            previous.removeAll(entries);
+            previous.forEach(index::remove);
+        }
+    }
+
+    /**
+     * @param prefix the case-insensitive DOI or name word prefix
+     * @param limit the maximum number of suggestions
+     * @return the matching datasets, in key order
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String lowerPrefix = prefix.trim().toLowerCase(Locale.ROOT);
+        if (lowerPrefix.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        String from = truncate(lowerPrefix);
+        String to = from + Character.MAX_VALUE;
+        boolean isTruncated = from.length() < lowerPrefix.length();
+        Map<String, Suggestion> matches = new LinkedHashMap<String, Suggestion>();
+        for (Suggestion suggestion: index.subMap(from, true, to, false).values()) {
+            if (matches.size() >= limit) {
+                break;
+            }
+            if (isTruncated && !matchesLongPrefix(suggestion, lowerPrefix)) {
+                continue;
+            }
+            matches.putIfAbsent(suggestion.getDoi(), suggestion);
+        }
+
+        return new ArrayList<Suggestion>(matches.values());
+    }
+
+    /**
+     * @return the number of indexed datasets
+     */
+    public int size() {
+        return datasetKeys.size();
+    }
+
+    private static boolean matchesLongPrefix(Suggestion suggestion, String lowerPrefix) {
+        String name = suggestion.getName();
+        return name != null && name.toLowerCase(Locale.ROOT).contains(lowerPrefix);
+    }
+
+    private static String truncate(String key) {
+        return key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key;
+    }
+
+}
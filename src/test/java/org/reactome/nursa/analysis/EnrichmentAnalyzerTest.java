@@ -0,0 +1,122 @@
+package org.reactome.nursa.analysis;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.reactome.nursa.geneset.GeneSetIndex;
+import org.reactome.nursa.model.DataPoint;
+
+/**
+ * Tests the pathway over-representation analysis against hand-computed
+ * hypergeometric p-values and Benjamini-Hochberg q-values.
+ */
+public class EnrichmentAnalyzerTest {
+
+    private static final double TOLERANCE = 1e-12;
+
+    /**
+     * The universe is G1-G10. G1, G2 and G5 are significant, so that:
+     * <ul>
+     * <li>P1 has 2 of 4: p = (C(4,2)C(6,1) + C(4,3)) / C(10,3) = 1/3</li>
+     * <li>P2 has 1 of 6: p = 1 - C(4,3) / C(10,3) = 29/30</li>
+     * <li>P3 has 1 of 1: p = C(9,2) / C(10,3) = 3/10</li>
+     * <li>P4 has no measured gene and is not tested</li>
+     * </ul>
+     */
+    private static final String GMT =
+            "Pathway 1\tR-1\tG1\tG2\tG3\tG4\n" +
+            "Pathway 2\tR-2\tG5\tG6\tG7\tG8\tG9\tG10\n" +
+            "Pathway 3\tR-3\tG1\n" +
+            "Pathway 4\tR-4\tUNMEASURED\n";
+
+    private final EnrichmentAnalyzer analyzer = new EnrichmentAnalyzer();
+
+    @After
+    public void tearDown() {
+        analyzer.destroy();
+    }
+
+    @Test
+    public void testAnalyze() throws IOException {
+        GeneSetIndex index = GeneSetIndex.parse(
+                new ByteArrayInputStream(GMT.getBytes(StandardCharsets.UTF_8)), "test");
+        List<DataPoint> dataPoints = new ArrayList<DataPoint>();
+        for (int i = 1; i <= 10; i++) {
+            boolean isSignificant = i == 1 || i == 2 || i == 5;
+            dataPoints.add(dataPoint("G" + i, isSignificant ? 0.01 : 0.5, 2));
+        }
+        // Fails the fold change threshold.
+        dataPoints.add(dataPoint("G3", 0.01, 0.1));
+        // Not in any pathway, so not in the universe.
+        dataPoints.add(dataPoint("OTHER", 0.01, 2));
+
+        EnrichmentResult result = analyzer.analyze(dataPoints, index, 0.05, 1.0);
+        assertEquals("The universe size is incorrect", 10, result.getUniverseSize());
+        assertEquals("The significant count is incorrect", 3, result.getSignificantCount());
+        List<PathwayEnrichment> pathways = result.getPathways();
+        assertEquals("The pathway count is incorrect", 3, pathways.size());
+        // The pathways are in p-value order. The q-values are
+        // p * n / rank, made monotone from the highest rank down.
+        assertPathway(pathways.get(0), "R-3", 1, Arrays.asList("G1"), 0.3, 0.5);
+        assertPathway(pathways.get(1), "R-1", 4, Arrays.asList("G1", "G2"), 1.0 / 3, 0.5);
+        assertPathway(pathways.get(2), "R-2", 6, Arrays.asList("G5"), 29.0 / 30, 29.0 / 30);
+    }
+
+    @Test
+    public void testUpperTail() {
+        double[] logFactorials = EnrichmentAnalyzer.logFactorials(1000);
+        int[][] cases = {{5, 50, 100, 1000}, {1, 1, 1, 1000}, {12, 40, 60, 1000}, {0, 10, 10, 100}};
+        for (int[] c: cases) {
+            double expected = exactUpperTail(c[0], c[1], c[2], c[3]);
+            double actual = EnrichmentAnalyzer.upperTail(c[0], c[1], c[2], c[3], logFactorials);
+            assertEquals("The p-value is incorrect for " + Arrays.toString(c),
+                    expected, actual, expected * 1e-9);
+        }
+    }
+
+    private static double exactUpperTail(int found, int size, int drawn, int universe) {
+        BigInteger sum = BigInteger.ZERO;
+        for (int i = found; i <= Math.min(size, drawn); i++) {
+            sum = sum.add(choose(size, i).multiply(choose(universe - size, drawn - i)));
+        }
+        return new BigDecimal(sum).divide(new BigDecimal(choose(universe, drawn)),
+                MathContext.DECIMAL64).doubleValue();
+    }
+
+    private static BigInteger choose(int n, int k) {
+        BigInteger result = BigInteger.ONE;
+        for (int i = 0; i < k; i++) {
+            result = result.multiply(BigInteger.valueOf(n - i)).divide(BigInteger.valueOf(i + 1));
+        }
+        return result;
+    }
+
+    private static void assertPathway(PathwayEnrichment pathway, String id, int size,
+            List<String> genes, double pvalue, double fdr) {
+        assertEquals("The pathway order is incorrect", id, pathway.getPathwayId());
+        assertEquals(id + " size is incorrect", size, pathway.getSize());
+        assertEquals(id + " genes are incorrect", genes, pathway.getGenes());
+        assertEquals(id + " p-value is incorrect", pvalue, pathway.getPvalue(), TOLERANCE);
+        assertEquals(id + " q-value is incorrect", fdr, pathway.getFdr(), TOLERANCE);
+    }
+
+    private static DataPoint dataPoint(String symbol, double pvalue, double foldChange) {
+        DataPoint dataPoint = new DataPoint();
+        dataPoint.setSymbol(symbol);
+        dataPoint.setPvalue(pvalue);
+        dataPoint.setFoldChange(foldChange);
+        return dataPoint;
+    }
+
+}
@@ -0,0 +1,118 @@
+package org.reactome.nursa.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests the in-memory cache bounds and counters.
+ */
+public class BoundedCacheTest {
+
+    @Test
+    public void testEntryBound() {
+        BoundedCache<String, String> cache = newCache(2, 1000, 0);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        // Touch a, so that b is the least recently used.
+        assertEquals("A", cache.get("a"));
+        cache.put("c", "C");
+        assertNull("The least recently used entry was not evicted", cache.get("b"));
+        assertEquals("A", cache.get("a"));
+        assertEquals("C", cache.get("c"));
+        assertStats(cache.getStats(), 2, 2, 3, 1, 1);
+    }
+
+    @Test
+    public void testWeightBound() {
+        BoundedCache<String, String> cache = newCache(100, 10, 0);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        cache.put("c", "cccc");
+        assertNull("The eldest entry was not evicted", cache.get("a"));
+        assertEquals("bbbb", cache.get("b"));
+        assertEquals("cccc", cache.get("c"));
+        assertEquals(8, cache.getStats().getWeight());
+    }
+
+    @Test
+    public void testOversizedValue() {
+        BoundedCache<String, String> cache = newCache(100, 10, 0);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbbbbbbbbb");
+        assertNull("An oversized value was cached", cache.get("b"));
+        assertEquals("An oversized value evicted an entry", "aaaa", cache.get("a"));
+    }
+
+    @Test
+    public void testReplace() {
+        BoundedCache<String, String> cache = newCache(100, 10, 0);
+        cache.put("a", "aaaa");
+        cache.put("a", "aa");
+        assertEquals("aa", cache.get("a"));
+        assertStats(cache.getStats(), 1, 2, 1, 0, 0);
+    }
+
+    @Test
+    public void testTtl() throws InterruptedException {
+        BoundedCache<String, String> cache = newCache(100, 1000, 1);
+        cache.put("a", "A");
+        Thread.sleep(20);
+        assertNull("An expired entry was returned", cache.get("a"));
+        assertStats(cache.getStats(), 0, 0, 0, 1, 1);
+    }
+
+    @Test
+    public void testLoader() {
+        BoundedCache<String, String> cache = newCache(100, 1000, 0);
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals("A", cache.get("a", key -> {
+            loads.incrementAndGet();
+            return "A";
+        }));
+        assertEquals("A", cache.get("a", key -> {
+            loads.incrementAndGet();
+            return "X";
+        }));
+        assertEquals("The loader was not called once", 1, loads.get());
+        assertNull(cache.get("b", key -> null));
+        assertEquals("A null load was cached", 1, cache.getStats().getSize());
+    }
+
+    @Test
+    public void testInvalidate() {
+        BoundedCache<String, String> cache = newCache(100, 1000, 0);
+        cache.put("x:1", "a");
+        cache.put("x:2", "bb");
+        cache.put("y:1", "ccc");
+        cache.invalidateIf(key -> key.startsWith("x:"));
+        assertNull(cache.get("x:1"));
+        assertNull(cache.get("x:2"));
+        assertEquals("ccc", cache.get("y:1"));
+        assertEquals(3, cache.getStats().getWeight());
+        cache.invalidateAll();
+        assertStats(cache.getStats(), 0, 0, 1, 2, 0);
+    }
+
+    /**
+     * The string value weight is its length.
+     */
+    private static BoundedCache<String, String> newCache(int maxEntries, long maxWeight,
+            long ttlMillis) {
+        return new BoundedCache<String, String>("test", maxEntries, maxWeight, ttlMillis,
+                String::length);
+    }
+
+    private static void assertStats(CacheStats stats, int size, long weight, long hits,
+            long misses, long evictions) {
+        assertEquals("The size is incorrect", size, stats.getSize());
+        assertEquals("The weight is incorrect", weight, stats.getWeight());
+        assertEquals("The hit count is incorrect", hits, stats.getHits());
+        assertEquals("The miss count is incorrect", misses, stats.getMisses());
+        assertEquals("The eviction count is incorrect", evictions, stats.getEvictions());
+    }
+
+}
@@ -0,0 +1,33 @@
+package org.reactome.nursa.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.reactome.nursa.model.DataSet;
+
+/**
+ * Tests the heap size estimates.
+ */
+public class WeighersTest {
+
+    @Test
+    public void testString() {
+        assertEquals(0, Weighers.weigh((String) null));
+        long empty = Weighers.weigh("");
+        assertEquals("A char is not weighed as two bytes", empty + 2000,
+                Weighers.weigh(new String(new char[1000])));
+        assertEquals("The string and array headers are not weighed", 40, empty);
+    }
+
+    @Test
+    public void testDataSet() {
+        DataSet dataset = new DataSet();
+        dataset.setDoi("10.1621/abc");
+        dataset.setName("Name");
+        long weight = Weighers.weigh(dataset);
+        assertTrue("The dataset weight is less than its strings",
+                weight > Weighers.weigh("10.1621/abc") + Weighers.weigh("Name"));
+    }
+
+}
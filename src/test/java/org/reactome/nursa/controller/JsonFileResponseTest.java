@@ -0,0 +1,36 @@
+package org.reactome.nursa.controller;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the Accept-Encoding parsing.
+ */
+public class JsonFileResponseTest {
+
+    @Test
+    public void testAcceptsGzip() {
+        assertTrue(JsonFileResponse.acceptsGzip("gzip"));
+        assertTrue(JsonFileResponse.acceptsGzip("gzip, deflate, br"));
+        assertTrue(JsonFileResponse.acceptsGzip("deflate, gzip;q=0.5"));
+        assertTrue(JsonFileResponse.acceptsGzip("GZIP;Q=1"));
+        assertTrue(JsonFileResponse.acceptsGzip("x-gzip"));
+        assertTrue(JsonFileResponse.acceptsGzip("*"));
+        assertTrue(JsonFileResponse.acceptsGzip("br, *;q=0.1"));
+    }
+
+    @Test
+    public void testRejectsGzip() {
+        assertFalse(JsonFileResponse.acceptsGzip(""));
+        assertFalse(JsonFileResponse.acceptsGzip("identity"));
+        assertFalse(JsonFileResponse.acceptsGzip("deflate, br"));
+        assertFalse(JsonFileResponse.acceptsGzip("gzip;q=0"));
+        assertFalse(JsonFileResponse.acceptsGzip("gzip; q=0.000"));
+        assertFalse(JsonFileResponse.acceptsGzip("identity, *;q=0"));
+        assertFalse(JsonFileResponse.acceptsGzip("gzip;q=0, *"));
+        assertFalse(JsonFileResponse.acceptsGzip("gzip;q=x"));
+    }
+
+}
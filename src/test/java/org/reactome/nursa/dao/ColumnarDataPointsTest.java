@@ -0,0 +1,146 @@
+package org.reactome.nursa.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.reactome.nursa.model.DataPoint;
+
+/**
+ * Tests the columnar data points file write and read round trip.
+ */
+public class ColumnarDataPointsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        List<DataPoint> dataPoints = Arrays.asList(
+                dataPoint("ESR1", 0.001, 2.5),
+                dataPoint(null, 0.2, -1.25),
+                dataPoint("NCOAΔ", Double.NaN, Double.NaN),
+                dataPoint("", 0.0, Double.NEGATIVE_INFINITY),
+                dataPoint("A", 1.0, 0.0));
+        File file = folder.newFile("1" + ColumnarDataPoints.FILE_EXTENSION);
+        ColumnarDataPoints.write(dataPoints, file);
+        // The symbol table is padded so that the columns are aligned.
+        assertEquals("The file length is not 8-byte aligned", 0, file.length() % 8);
+        assertDataPoints(dataPoints, ColumnarDataPoints.read(file));
+    }
+
+    @Test
+    public void testStreamWriter() throws IOException {
+        List<DataPoint> dataPoints = new ArrayList<DataPoint>();
+        // Symbol lengths which exercise every padding length.
+        for (int i = 0; i < 17; i++) {
+            String symbol = i % 5 == 0 ? null : "G" + "xyz".substring(0, i % 4) + i;
+            dataPoints.add(dataPoint(symbol, i / 17.0, i % 3 == 0 ? Double.NaN : -i));
+        }
+        File file = new File(folder.getRoot(), "2" + ColumnarDataPoints.FILE_EXTENSION);
+        try (ColumnarDataPoints.StreamWriter writer = new ColumnarDataPoints.StreamWriter(file)) {
+            for (DataPoint dataPoint: dataPoints) {
+                writer.write(dataPoint);
+            }
+            writer.finish();
+        }
+        assertDataPoints(dataPoints, ColumnarDataPoints.read(file));
+        // The spool files are removed.
+        assertEquals(Collections.singletonList(file), Arrays.asList(folder.getRoot().listFiles()));
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        File file = folder.newFile("3" + ColumnarDataPoints.FILE_EXTENSION);
+        ColumnarDataPoints.write(Collections.<DataPoint>emptyList(), file);
+        assertTrue("The empty experiment was read with data points",
+                ColumnarDataPoints.read(file).isEmpty());
+
+        File streamed = new File(folder.getRoot(), "4" + ColumnarDataPoints.FILE_EXTENSION);
+        try (ColumnarDataPoints.StreamWriter writer = new ColumnarDataPoints.StreamWriter(streamed)) {
+            writer.finish();
+        }
+        assertTrue("The empty streamed experiment was read with data points",
+                ColumnarDataPoints.read(streamed).isEmpty());
+    }
+
+    @Test(expected=IOException.class)
+    public void testNotColumnar() throws IOException {
+        File file = folder.newFile("5" + ColumnarDataPoints.FILE_EXTENSION);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("[{\"symbol\": \"ESR1\"}]".getBytes("UTF-8"));
+        }
+        ColumnarDataPoints.read(file);
+    }
+
+    @Test
+    public void testOf() throws IOException {
+        List<DataPoint> dataPoints = Arrays.asList(
+                dataPoint("ESR1", 0.001, 2.5),
+                dataPoint(null, 0.2, -1.25));
+        ColumnarDataPoints columns = ColumnarDataPoints.of(dataPoints);
+        assertDataPoints(dataPoints, columns);
+        assertEquals("ESR1", columns.getSymbol(0));
+        assertNull(columns.getSymbol(1));
+        assertEquals(-1.25, columns.getFoldChange(1), 0.0);
+        // The in-memory content is the file content.
+        File file = folder.newFile("6" + ColumnarDataPoints.FILE_EXTENSION);
+        ColumnarDataPoints.write(columns, file);
+        assertEquals(columns.getByteLength(), file.length());
+        assertDataPoints(dataPoints, ColumnarDataPoints.read(file));
+    }
+
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void testIndexOutOfBounds() throws IOException {
+        ColumnarDataPoints.of(Arrays.asList(dataPoint("ESR1", 0.001, 2.5))).getPvalue(1);
+    }
+
+    @Test(expected=IOException.class)
+    public void testTruncated() throws IOException {
+        File file = folder.newFile("7" + ColumnarDataPoints.FILE_EXTENSION);
+        ColumnarDataPoints.write(Arrays.asList(dataPoint("ESR1", 0.001, 2.5)), file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 8);
+        }
+        ColumnarDataPoints.read(file);
+    }
+
+    private static void assertDataPoints(List<DataPoint> expected, List<DataPoint> actual) {
+        assertEquals("The data point count is incorrect", expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            DataPoint dataPoint = actual.get(i);
+            String symbol = expected.get(i).getSymbol();
+            if (symbol == null) {
+                assertNull("The null symbol was not preserved", dataPoint.getSymbol());
+            } else {
+                assertEquals("The symbol is incorrect", symbol, dataPoint.getSymbol());
+            }
+            // Compare the bits, so that NaN equals NaN.
+            assertEquals("The p-value is incorrect", expected.get(i).getPvalue(),
+                    dataPoint.getPvalue(), 0.0);
+            assertEquals("The fold change is incorrect", expected.get(i).getFoldChange(),
+                    dataPoint.getFoldChange(), 0.0);
+        }
+    }
+
+    private static DataPoint dataPoint(String symbol, double pvalue, double foldChange) {
+        DataPoint dataPoint = new DataPoint();
+        dataPoint.setSymbol(symbol);
+        dataPoint.setPvalue(pvalue);
+        dataPoint.setFoldChange(foldChange);
+        return dataPoint;
+    }
+
+}
@@ -0,0 +1,115 @@
+package org.reactome.nursa.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the SPP document decoding.
+ */
+public class SppCodecTest {
+
+    private static final String DATA_POINT_1 =
+            "{\"id\": 7, \"experimentId\": \"E1\", \"symbol\": \"ESR1\"," +
+            " \"pvalue\": 0.001, \"foldChange\": -2.5," +
+            " \"extra\": {\"nested\": [1, {\"symbol\": \"WRONG\"}]}}";
+
+    private static final String DATA_POINT_2 =
+            "{\"id\": 3, \"pvalue\": 0, \"foldChange\": 1, \"tags\": [\"a\", \"b\"]," +
+            " \"experimentId\": \"E2\"}";
+
+    private static final String DATASET =
+            "{\"doi\": \"10.1621/abc\", \"name\": \"Test\", \"unknown\": true," +
+            " \"experiments\": [{\"experimentId\": 1, \"internalExperimentId\": \"E1\"," +
+            " \"name\": \"Exp 1\", \"species\": \"Human\"}]}";
+
+    @Test
+    public void testDataPointsArray() throws IOException {
+        assertDataPoints(SppCodec.readDataPoints(bytes("[" + DATA_POINT_1 + ", " + DATA_POINT_2 + "]")));
+    }
+
+    @Test
+    public void testDataPointsSequence() throws IOException {
+        assertDataPoints(SppCodec.readDataPoints(bytes(DATA_POINT_1 + "\n" + DATA_POINT_2 + "\n")));
+    }
+
+    @Test
+    public void testEmptyDataPoints() throws IOException {
+        assertEquals(0, SppCodec.readDataPoints(bytes("[]")).size());
+        assertEquals(0, SppCodec.readDataPoints(bytes("")).size());
+    }
+
+    @Test(expected=IOException.class)
+    public void testMissingId() throws IOException {
+        SppCodec.readDataPoints(bytes("[{\"symbol\": \"ESR1\"}]"));
+    }
+
+    @Test(expected=IOException.class)
+    public void testNullPvalue() throws IOException {
+        SppCodec.readDataPoints(bytes("[{\"id\": 1, \"pvalue\": null, \"foldChange\": 2}]"));
+    }
+
+    @Test(expected=IOException.class)
+    public void testStringPvalue() throws IOException {
+        SppCodec.readDataPoints(bytes("[{\"id\": 1, \"pvalue\": \"0.01\", \"foldChange\": 2}]"));
+    }
+
+    @Test(expected=IOException.class)
+    public void testMissingFoldChange() throws IOException {
+        SppCodec.readDataPoints(bytes("[{\"id\": 1, \"pvalue\": 0.01}]"));
+    }
+
+    @Test(expected=IOException.class)
+    public void testUnterminatedArray() throws IOException {
+        SppCodec.readDataPoints(bytes("[" + DATA_POINT_1 + ", 5]"));
+    }
+
+    @Test
+    public void testDataSetsArray() throws IOException {
+        assertDataSets(SppCodec.readDataSets(bytes("[" + DATASET + "]")));
+    }
+
+    @Test
+    public void testDataSetsSequence() throws IOException {
+        assertDataSets(SppCodec.readDataSets(bytes(DATASET)));
+    }
+
+    private static void assertDataPoints(List<SppCodec.DataPointRow> rows) {
+        assertEquals("The row count is incorrect", 2, rows.size());
+        SppCodec.DataPointRow row = rows.get(0);
+        assertEquals(7, row.getId());
+        assertEquals("E1", row.getInternalExperimentId());
+        assertEquals("ESR1", row.getDataPoint().getSymbol());
+        assertEquals(0.001, row.getDataPoint().getPvalue(), 0.0);
+        assertEquals(-2.5, row.getDataPoint().getFoldChange(), 0.0);
+        row = rows.get(1);
+        assertEquals(3, row.getId());
+        assertEquals("E2", row.getInternalExperimentId());
+        assertNull(row.getDataPoint().getSymbol());
+        assertEquals(0.0, row.getDataPoint().getPvalue(), 0.0);
+        assertEquals(1.0, row.getDataPoint().getFoldChange(), 0.0);
+    }
+
+    private static void assertDataSets(List<SppCodec.DataSetRow> rows) {
+        assertEquals("The row count is incorrect", 1, rows.size());
+        SppCodec.DataSetRow row = rows.get(0);
+        assertEquals("10.1621/abc", row.getDoi());
+        assertEquals("Test", row.getName());
+        assertNull(row.getDescription());
+        assertEquals(1, row.getExperiments().size());
+        SppCodec.ExperimentRow experiment = row.getExperiments().get(0);
+        assertEquals(Integer.valueOf(1), experiment.getExperimentId());
+        assertEquals("E1", experiment.getInternalExperimentId());
+        assertEquals("Human", experiment.getSpecies());
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
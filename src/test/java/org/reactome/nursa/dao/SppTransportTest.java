@@ -0,0 +1,35 @@
+package org.reactome.nursa.dao;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests the SPP <code>Retry-After</code> parsing.
+ */
+public class SppTransportTest {
+
+    /** Sun, 06 Nov 1994 08:49:37 GMT. */
+    private static final long DATE_MILLIS = 784111777000L;
+
+    @Test
+    public void testRetryAfterSeconds() {
+        assertEquals(120000, SppTransport.parseRetryAfterMillis(" 120 ", DATE_MILLIS));
+        assertEquals(0, SppTransport.parseRetryAfterMillis("-5", DATE_MILLIS));
+    }
+
+    @Test
+    public void testRetryAfterDate() {
+        String date = "Sun, 06 Nov 1994 08:49:37 GMT";
+        assertEquals(30000, SppTransport.parseRetryAfterMillis(date, DATE_MILLIS - 30000));
+        assertEquals("A past date has a delay", 0,
+                SppTransport.parseRetryAfterMillis(date, DATE_MILLIS + 1000));
+    }
+
+    @Test
+    public void testInvalidRetryAfter() {
+        assertEquals(0, SppTransport.parseRetryAfterMillis("soon", DATE_MILLIS));
+        assertEquals(0, SppTransport.parseRetryAfterMillis("", DATE_MILLIS));
+    }
+
+}
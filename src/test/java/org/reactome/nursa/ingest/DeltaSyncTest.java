@@ -0,0 +1,59 @@
+package org.reactome.nursa.ingest;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests the delta sync retry accounting.
+ */
+public class DeltaSyncTest {
+
+    @Test
+    public void testRetries() {
+        Map<String, Integer> attempts = new HashMap<String, Integer>();
+        attempts.put("10.1621/retried", 1);
+        attempts.put("10.1621/recovered", 2);
+        attempts.put("10.1621/last", 2);
+        IngestionReport retried = new IngestionReport(Arrays.asList(
+                failure("10.1621/retried"),
+                IngestionResult.success("10.1621/recovered", null, 0),
+                failure("10.1621/last")));
+        IngestionReport added = new IngestionReport(Arrays.asList(
+                IngestionResult.success("10.1621/new", null, 0),
+                failure("10.1621/failed")));
+        Map<String, Integer> retries =
+                DeltaSync.getRetries(Arrays.asList(retried, added), attempts, 3);
+        Map<String, Integer> expected = new HashMap<String, Integer>();
+        expected.put("10.1621/retried", 2);
+        expected.put("10.1621/failed", 1);
+        assertEquals("The retries are incorrect", expected, retries);
+    }
+
+    @Test
+    public void testNoFailures() {
+        IngestionReport report = new IngestionReport(Collections.singletonList(
+                IngestionResult.success("10.1621/new", null, 0)));
+        assertEquals(0, DeltaSync.getRetries(Collections.singletonList(report),
+                Collections.emptyMap(), 3).size());
+    }
+
+    @Test
+    public void testSingleAttempt() {
+        IngestionReport report = new IngestionReport(Collections.singletonList(
+                failure("10.1621/failed")));
+        assertEquals("A failure was retried with one attempt allowed",
+                0, DeltaSync.getRetries(Collections.singletonList(report),
+                        Collections.emptyMap(), 1).size());
+    }
+
+    private static IngestionResult failure(String doi) {
+        return IngestionResult.failure(doi, new RuntimeException("SPP error"), 0);
+    }
+
+}
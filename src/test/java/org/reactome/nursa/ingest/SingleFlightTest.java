@@ -0,0 +1,115 @@
+package org.reactome.nursa.ingest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the coalescing of concurrent keyed tasks.
+ */
+public class SingleFlightTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final SingleFlight<String, Object> singleFlight = new SingleFlight<String, Object>();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Object result = new Object();
+        Future<Object> first = executor.submit(() -> singleFlight.execute("a", () -> {
+            runs.incrementAndGet();
+            started.countDown();
+            await(release);
+            return result;
+        }));
+        started.await(5, TimeUnit.SECONDS);
+        Future<Object> joined = join(() -> singleFlight.execute("a", () -> {
+            runs.incrementAndGet();
+            return new Object();
+        }));
+        // A different key runs independently.
+        assertEquals("other", singleFlight.execute("b", () -> "other"));
+        release.countDown();
+        assertSame(result, first.get(5, TimeUnit.SECONDS));
+        assertSame(result, joined.get(5, TimeUnit.SECONDS));
+        assertEquals("The coalesced task ran more than once", 1, runs.get());
+        assertEquals("The completed task is still in flight", 0, singleFlight.size());
+    }
+
+    @Test
+    public void testSharedException() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Object> first = executor.submit(() -> singleFlight.execute("a", () -> {
+            started.countDown();
+            await(release);
+            throw new IllegalStateException("failed");
+        }));
+        started.await(5, TimeUnit.SECONDS);
+        Future<Object> joined = join(() -> singleFlight.execute("a", () -> "unused"));
+        release.countDown();
+        assertFailed(first);
+        assertFailed(joined);
+        // A later call runs the task again.
+        assertEquals("retry", singleFlight.execute("a", () -> "retry"));
+    }
+
+    /**
+     * Submits a call which joins the in-flight task, and waits until
+     * the call is blocked on the task.
+     */
+    private Future<Object> join(Callable<Object> call) throws InterruptedException {
+        AtomicReference<Thread> thread = new AtomicReference<Thread>();
+        Future<Object> future = executor.submit(() -> {
+            thread.set(Thread.currentThread());
+            return call.call();
+        });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.get() == null || thread.get().getState() != Thread.State.WAITING) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("The call did not join the in-flight task");
+            }
+            Thread.sleep(1);
+        }
+        return future;
+    }
+
+    private static void assertFailed(Future<Object> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            assertEquals(IllegalStateException.class, e.getCause().getClass());
+            return;
+        }
+        throw new AssertionError("The task did not fail");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+package org.reactome.nursa.metrics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests the histogram bucketing.
+ */
+public class HistogramTest {
+
+    @Test
+    public void testBucketEdges() {
+        Histogram histogram = new Histogram(new double[] {1, 2, 5});
+        // A value equal to a bound is in that bound's bucket.
+        for (double value: new double[] {0, 1, 1.5, 2, 2.0001, 5, 7}) {
+            histogram.observe(value);
+        }
+        assertArrayEquals("The cumulative counts are incorrect",
+                new long[] {2, 4, 6, 7}, histogram.getCumulativeCounts());
+        assertEquals(18.5001, histogram.getSum(), 1e-9);
+    }
+
+    @Test
+    public void testEmpty() {
+        Histogram histogram = new Histogram(Histogram.LATENCY_BUCKETS);
+        assertEquals(Histogram.LATENCY_BUCKETS.length + 1, histogram.getCumulativeCounts().length);
+        assertEquals(0, histogram.getCumulativeCounts()[Histogram.LATENCY_BUCKETS.length]);
+        assertEquals(0.0, histogram.getSum(), 0.0);
+    }
+
+}
@@ -0,0 +1,65 @@
+package org.reactome.nursa.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+/**
+ * Tests the Prometheus text exposition output.
+ */
+public class MetricsRegistryTest {
+
+    @Test
+    public void testWrite() throws IOException {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("b_requests_total", "The requests.", "path", "/x").add(3);
+        metrics.counter("b_requests_total", "The requests.", "path", "/a\"b").increment();
+        metrics.gauge("a_size", "The size.", () -> 2.5);
+        Histogram histogram = metrics.histogram("c_seconds", "The time.",
+                new double[] {0.1, 1}, "op", "read");
+        histogram.observe(0.1);
+        histogram.observe(3);
+        String expected =
+                "# HELP a_size The size.\n" +
+                "# TYPE a_size gauge\n" +
+                "a_size 2.5\n" +
+                "# HELP b_requests_total The requests.\n" +
+                "# TYPE b_requests_total counter\n" +
+                "b_requests_total{path=\"/a\\\"b\"} 1\n" +
+                "b_requests_total{path=\"/x\"} 3\n" +
+                "# HELP c_seconds The time.\n" +
+                "# TYPE c_seconds histogram\n" +
+                "c_seconds_bucket{op=\"read\",le=\"0.1\"} 1\n" +
+                "c_seconds_bucket{op=\"read\",le=\"1.0\"} 1\n" +
+                "c_seconds_bucket{op=\"read\",le=\"+Inf\"} 2\n" +
+                "c_seconds_sum{op=\"read\"} 3.1\n" +
+                "c_seconds_count{op=\"read\"} 2\n";
+        StringWriter writer = new StringWriter();
+        metrics.write(writer);
+        assertEquals(expected, writer.toString());
+    }
+
+    @Test
+    public void testSameMetric() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        assertSame(metrics.timer("t_seconds", "The time.", "op", "a"),
+                metrics.timer("t_seconds", "The time.", "op", "a"));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testTypeConflict() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("x", "The x.");
+        metrics.gauge("x", "The x.", () -> 1);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testOddLabels() {
+        new MetricsRegistry().counter("x_total", "The x.", "path");
+    }
+
+}
@@ -0,0 +1,123 @@
+package org.reactome.nursa.query;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.reactome.nursa.geneset.GeneSetIndex;
+import org.reactome.nursa.model.DataPoint;
+import org.reactome.nursa.model.DisplayableDataPoint;
+
+/**
+ * Tests the data point index queries against a brute-force filter
+ * and stable sort of the experiment data points.
+ */
+public class DataPointIndexTest {
+
+    private static final int SIZE = 500;
+
+    private static final double[] MAX_PVALUES = {Double.POSITIVE_INFINITY, 0.5, 0.05, 0.0};
+
+    private static final double[] MIN_FOLD_CHANGES = {0.0, 1.0, 2.5, 100.0};
+
+    private static final int[] OFFSETS = {0, 1, 7, SIZE};
+
+    private static final int[] LIMITS = {0, 1, 10, Integer.MAX_VALUE};
+
+    @Test
+    public void testQuery() throws IOException {
+        Random random = new Random(17);
+        GeneSetIndex geneSetIndex = GeneSetIndex.parse(new ByteArrayInputStream(
+                "Pathway\tR-1\tG0\tG2\tG4\tG6\tG8\n".getBytes(StandardCharsets.UTF_8)), "test");
+        List<DataPoint> dataPoints = new ArrayList<DataPoint>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            DataPoint dataPoint = new DataPoint();
+            // Repeated values exercise the stable order of equal keys.
+            dataPoint.setSymbol(random.nextInt(20) == 0 ? null : "G" + random.nextInt(50));
+            dataPoint.setPvalue(random.nextInt(25) == 0 ? Double.NaN : random.nextInt(100) / 100.0);
+            dataPoint.setFoldChange(random.nextInt(25) == 0 ? Double.NaN :
+                    (random.nextInt(100) - 50) / 10.0);
+            dataPoints.add(dataPoint);
+        }
+        DataPointIndex index = new DataPointIndex(dataPoints, geneSetIndex);
+        for (DataPointIndex.Sort sort: DataPointIndex.Sort.values()) {
+            for (double maxPvalue: MAX_PVALUES) {
+                for (double minFoldChange: MIN_FOLD_CHANGES) {
+                    for (boolean reactomeOnly: new boolean[] {false, true}) {
+                        for (int offset: OFFSETS) {
+                            for (int limit: LIMITS) {
+                                List<DisplayableDataPoint> expected = bruteForce(dataPoints,
+                                        geneSetIndex, maxPvalue, minFoldChange, reactomeOnly,
+                                        sort, offset, limit);
+                                List<DisplayableDataPoint> actual = index.query(maxPvalue,
+                                        minFoldChange, reactomeOnly, sort, offset, limit);
+                                String query = sort + " p<=" + maxPvalue + " |fc|>=" +
+                                        minFoldChange + " reactome=" + reactomeOnly +
+                                        " offset=" + offset + " limit=" + limit;
+                                assertEquals(query, format(expected), format(actual));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<DisplayableDataPoint> bruteForce(List<DataPoint> dataPoints,
+            GeneSetIndex geneSetIndex, double maxPvalue, double minFoldChange,
+            boolean reactomeOnly, DataPointIndex.Sort sort, int offset, int limit) {
+        List<DisplayableDataPoint> selected = new ArrayList<DisplayableDataPoint>();
+        for (DataPoint dataPoint: dataPoints) {
+            boolean isReactome = geneSetIndex.contains(dataPoint.getSymbol());
+            // A NaN fails a bound, but passes if there is no bound.
+            boolean isPvalueMatch = maxPvalue == Double.POSITIVE_INFINITY ||
+                    dataPoint.getPvalue() <= maxPvalue;
+            boolean isFoldChangeMatch = minFoldChange <= 0 ||
+                    Math.abs(dataPoint.getFoldChange()) >= minFoldChange;
+            if (isPvalueMatch && isFoldChangeMatch && (isReactome || !reactomeOnly)) {
+                selected.add(new DisplayableDataPoint(dataPoint, isReactome));
+            }
+        }
+        // List.sort is stable.
+        switch (sort) {
+        case PVALUE:
+            selected.sort(Comparator.comparingDouble(DataPoint::getPvalue));
+            break;
+        case FOLD_CHANGE:
+            selected.sort(Comparator.comparingDouble(DataPointIndexTest::sortableFoldChange)
+                    .reversed());
+            break;
+        case SYMBOL:
+            selected.sort(Comparator.comparing(DataPoint::getSymbol,
+                    Comparator.nullsLast(Comparator.naturalOrder())));
+            break;
+        default:
+            break;
+        }
+        return selected.stream()
+                .skip(offset)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private static double sortableFoldChange(DataPoint dataPoint) {
+        double foldChange = Math.abs(dataPoint.getFoldChange());
+        return Double.isNaN(foldChange) ? -1 : foldChange;
+    }
+
+    private static List<String> format(List<DisplayableDataPoint> dataPoints) {
+        return dataPoints.stream()
+                .map(dataPoint -> dataPoint.getSymbol() + "/" + dataPoint.getPvalue() + "/" +
+                        dataPoint.getFoldChange() + "/" + dataPoint.isReactome())
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,125 @@
+package org.reactome.nursa.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.reactome.nursa.controller.BadRequestException;
+import org.reactome.nursa.model.DataSet;
+import org.reactome.nursa.model.DataSetSearchResult;
+
+/**
+ * Tests the embedded full-text search index.
+ */
+public class LocalSearchIndexTest {
+
+    private LocalSearchIndex index;
+
+    @Before
+    public void setUp() {
+        index = new LocalSearchIndex();
+        index.add(dataset("10.1621/a1", "Estrogen receptor", "Breast cancer cells"));
+        index.add(dataset("10.1621/b2", "Androgen study", "Estrogen and androgen receptor crosstalk"));
+        index.add(dataset("10.1621/c3", "Receptor atlas", "Nuclear receptor expression"));
+        index.add(dataset("10.1621/d4", "Unrelated", null));
+    }
+
+    @Test
+    public void testRanking() {
+        // Estrogen is in a1's name and b2's description, so the name
+        // match ranks first.
+        assertEquals(list("10.1621/a1", "10.1621/b2"), dois(search("ESTROGEN")));
+        // c3 has receptor in both fields, and a1 in the name only.
+        assertEquals(list("10.1621/c3", "10.1621/a1", "10.1621/b2"),
+                dois(search("receptor")));
+        // The rarer estrogen weighs more than receptor: a1 scores
+        // 2 idf(estrogen) + 2 idf(receptor), which is more than c3's
+        // 3 idf(receptor), which is more than b2's one of each.
+        assertEquals(list("10.1621/a1", "10.1621/c3", "10.1621/b2"),
+                dois(search("estrogen receptor")));
+    }
+
+    @Test
+    public void testDoiMatch() {
+        // The DOI match ranks above the word matches.
+        assertEquals(list("10.1621/d4"), dois(search("10.1621/d4")));
+        assertEquals(0, search("10.1621/zz").getNumFound());
+    }
+
+    @Test
+    public void testPaging() {
+        DataSetSearchResult result = index.search("receptor", Optional.of(1), Optional.of(1));
+        assertEquals(3, result.getNumFound());
+        assertEquals(list("10.1621/a1"), dois(result));
+    }
+
+    @Test
+    public void testReplace() {
+        index.add(dataset("10.1621/a1", "Progesterone", null));
+        assertEquals(4, index.size());
+        assertEquals("A replaced word was retained",
+                list("10.1621/b2"), dois(search("estrogen")));
+        assertEquals(list("10.1621/a1"), dois(search("progesterone")));
+    }
+
+    @Test
+    public void testCursor() {
+        CursorSearchResult first = index.search("receptor", CursorSearchResult.START_CURSOR, 2);
+        assertEquals(3, first.getNumFound());
+        assertEquals("The cursor page is not in DOI order",
+                list("10.1621/a1", "10.1621/b2"), dois(first));
+        assertTrue(LocalSearchIndex.isLocalCursor(first.getNextCursor()));
+        CursorSearchResult second = index.search("receptor", first.getNextCursor(), 2);
+        assertEquals(list("10.1621/c3"), dois(second));
+        assertNull("A short page has a next cursor", second.getNextCursor());
+    }
+
+    @Test
+    public void testCursorLastFullPage() {
+        CursorSearchResult first = index.search("receptor", CursorSearchResult.START_CURSOR, 3);
+        assertEquals(3, first.getDatasets().size());
+        CursorSearchResult second = index.search("receptor", first.getNextCursor(), 3);
+        assertEquals(0, second.getDatasets().size());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    public void testForeignCursor() {
+        assertFalse(LocalSearchIndex.isLocalCursor("AoE/KjEwLjE2MjEvYTE="));
+        assertFalse(LocalSearchIndex.isLocalCursor("not base64!"));
+    }
+
+    @Test(expected=BadRequestException.class)
+    public void testInvalidCursor() {
+        index.search("receptor", "not base64!", 2);
+    }
+
+    private DataSetSearchResult search(String term) {
+        return index.search(term, Optional.empty(), Optional.empty());
+    }
+
+    static DataSet dataset(String doi, String name, String description) {
+        DataSet dataset = new DataSet();
+        dataset.setDoi(doi);
+        dataset.setName(name);
+        dataset.setDescription(description);
+        return dataset;
+    }
+
+    static List<String> dois(DataSetSearchResult result) {
+        return result.getDatasets().stream().map(DataSet::getDoi).collect(Collectors.toList());
+    }
+
+    static List<String> list(String... dois) {
+        return Arrays.asList(dois);
+    }
+
+}
@@ -0,0 +1,92 @@
+package org.reactome.nursa.query;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.reactome.nursa.model.DataSet;
+
+/**
+ * Tests the typeahead prefix index.
+ */
+public class SuggestionIndexTest {
+
+    private SuggestionIndex index;
+
+    @Before
+    public void setUp() {
+        index = new SuggestionIndex();
+        index.add(dataset("10.1621/AbC123", "Estrogen receptor alpha agonists in MCF-7 cells"));
+        index.add(dataset("10.1621/XyZ789", "Glucocorticoid receptor ChIP-seq"));
+        index.add(dataset("10.1621/Est001", null));
+    }
+
+    @Test
+    public void testDoiPrefix() {
+        assertEquals(list("10.1621/AbC123"), dois(index.suggest("10.1621/ab", 10)));
+        assertEquals("The DOI id prefix did not match",
+                list("10.1621/XyZ789"), dois(index.suggest("xyz", 10)));
+    }
+
+    @Test
+    public void testNameWordPrefix() {
+        assertEquals(list("10.1621/AbC123", "10.1621/XyZ789"),
+                dois(index.suggest("Recep", 10)));
+        assertEquals(list("10.1621/AbC123"), dois(index.suggest("mcf", 10)));
+        assertEquals("A word start was not required",
+                list(), dois(index.suggest("ceptor", 10)));
+    }
+
+    @Test
+    public void testDistinctAndLimit() {
+        // "est" matches the third DOI id and the first dataset name
+        // word, in key order.
+        assertEquals(list("10.1621/Est001", "10.1621/AbC123"), dois(index.suggest(" EST ", 10)));
+        assertEquals(1, index.suggest("est", 1).size());
+        assertEquals(0, index.suggest("est", 0).size());
+        assertEquals(0, index.suggest("  ", 10).size());
+    }
+
+    @Test
+    public void testReplace() {
+        index.add(dataset("10.1621/XyZ789", "Androgen receptor"));
+        assertEquals(3, index.size());
+        assertEquals("A replaced key was retained", list(), dois(index.suggest("gluco", 10)));
+        assertEquals(list("10.1621/XyZ789"), dois(index.suggest("androgen", 10)));
+        assertEquals("Androgen receptor", index.suggest("androgen", 10).get(0).getName());
+    }
+
+    @Test
+    public void testLongPrefix() {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < 70; i++) {
+            word.append('a');
+        }
+        index.add(dataset("10.1621/Long1", word + "b"));
+        index.add(dataset("10.1621/Long2", word + "c"));
+        assertEquals(list("10.1621/Long1", "10.1621/Long2"),
+                dois(index.suggest(word.toString(), 10)));
+        assertEquals("A prefix beyond the key length was not checked",
+                list("10.1621/Long2"), dois(index.suggest(word + "c", 10)));
+    }
+
+    private static DataSet dataset(String doi, String name) {
+        DataSet dataset = new DataSet();
+        dataset.setDoi(doi);
+        dataset.setName(name);
+        return dataset;
+    }
+
+    private static List<String> dois(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::getDoi).collect(Collectors.toList());
+    }
+
+    private static List<String> list(String... dois) {
+        return Arrays.asList(dois);
+    }
+
+}
@@ -58,6 +58,8 @@ public class NursaControllerTest {
                 .setParameter("doi", doi);
         if (refresh != null) {
             builder.setParameter("refresh", refresh.toString());
+            // Wait for the refresh job result.
+            builder.setParameter("wait", "true");
         }
         URI uri = builder.build();
         HttpPut request = new HttpPut(uri);
@@ -90,6 +92,7 @@ public class NursaControllerTest {
                 .setPath("/datasets")
                 .setParameter("addedsince", after)
                 .setParameter("count", "1")
+                .setParameter("wait", "true")
                 .build();
         HttpPut request = new HttpPut(uri);
         request.setHeader("Accept", "application/json");